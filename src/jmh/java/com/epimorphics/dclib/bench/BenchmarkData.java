@@ -0,0 +1,123 @@
+/******************************************************************
+ * File:        BenchmarkData.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Generates reproducible test data for the benchmarks: a CSV file of
+ * reference-data style rows and a resource map template to convert it.
+ * The same seed and row count always give the same data.
+ * <p>
+ * Can be run directly to write the data out for use outside the benchmarks:
+ * <code>BenchmarkData outputDir [rows]</code>
+ * </p>
+ */
+public class BenchmarkData {
+    public static final long SEED = 20261017L;
+
+    public static final String HEADER = "id,label,code,value,date,category,notes";
+
+    public static final String[] CATEGORIES = {
+        "Bathing Water", "River Basin", "Sampling Point", "Local Authority", "Water Company",
+        "Catchment", "Monitoring Site", "Discharge Point", "Flood Area", "Reservoir",
+        "Groundwater Body", "Coastal Water", "Estuary", "Lake", "Canal",
+        "Treatment Works", "Pumping Station", "Weir", "Gauging Station", "Outfall"
+    };
+
+    static final String[] WORDS = {
+        "north", "south", "east", "west", "upper", "lower", "old", "new", "great", "little",
+        "bridge", "mill", "ford", "brook", "marsh", "wood", "field", "moor", "cliff", "bay"
+    };
+
+    public static final String TEMPLATE =
+        "{\n" +
+        "    \"name\" : \"benchmark\",\n" +
+        "    \"required\" : [\"id\", \"label\"],\n" +
+        "    \"@id\" : \"<http://example.com/id/{category.toSegment()}/{id}>\",\n" +
+        "    \"<rdf:type>\" : \"<skos:Concept>\",\n" +
+        "    \"<skos:prefLabel>\" : \"{label}@en\",\n" +
+        "    \"<skos:notation>\" : \"{code}\",\n" +
+        "    \"<rdf:value>\" : \"{value}\",\n" +
+        "    \"<dct:date>\" : \"{date}\",\n" +
+        "    \"<dct:subject>\" : \"<http://example.com/def/category/{category.toCleanSegment()}>\"\n" +
+        "}\n";
+
+    /**
+     * Generate a CSV file, including the header line, with the given number of data rows
+     */
+    public static String csv(int rows) {
+        Random random = new Random(SEED);
+        StringBuilder csv = new StringBuilder(rows * 96);
+        csv.append(HEADER).append('\n');
+        for (int i = 0; i < rows; i++) {
+            csv.append(i).append(',');
+            csv.append( label(random) ).append(',');
+            csv.append( (char)('A' + random.nextInt(26)) ).append( (char)('A' + random.nextInt(26)) ).append( random.nextInt(10000) ).append(',');
+            csv.append( random.nextInt(100000) / 100.0 ).append(',');
+            csv.append( String.format("%04d-%02d-%02d", 1990 + random.nextInt(35), 1 + random.nextInt(12), 1 + random.nextInt(28)) ).append(',');
+            csv.append( CATEGORIES[random.nextInt(CATEGORIES.length)] ).append(',');
+            if (random.nextInt(4) == 0) {
+                csv.append("\"Note, with \"\"quotes\"\" for ").append( label(random) ).append('"');
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Generate a set of distinct labels, suitable as keys for a lookup index
+     */
+    public static String[] labels(int n) {
+        Random random = new Random(SEED);
+        String[] labels = new String[n];
+        for (int i = 0; i < n; i++) {
+            labels[i] = label(random) + " " + i;
+        }
+        return labels;
+    }
+
+    /**
+     * Write a CSV file and the matching template into a directory
+     * @return the CSV file, the template is alongside as benchmark-template.json
+     */
+    public static File write(File dir, int rows) throws IOException {
+        dir.mkdirs();
+        File data = new File(dir, "benchmark-" + rows + ".csv");
+        if ( ! data.exists() ) {
+            Files.writeString(data.toPath(), csv(rows), StandardCharsets.UTF_8);
+        }
+        Files.writeString(templateFile(dir).toPath(), TEMPLATE, StandardCharsets.UTF_8);
+        return data;
+    }
+
+    public static File templateFile(File dir) {
+        return new File(dir, "benchmark-template.json");
+    }
+
+    private static String label(Random random) {
+        String a = WORDS[random.nextInt(WORDS.length)];
+        String b = WORDS[random.nextInt(WORDS.length)];
+        return Character.toUpperCase(a.charAt(0)) + a.substring(1) + " " + b;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: BenchmarkData outputDir [rows]");
+            System.exit(1);
+        }
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        File data = write(new File(args[0]), rows);
+        System.out.println("Wrote " + data + " and " + templateFile(data.getParentFile()));
+    }
+}
@@ -0,0 +1,78 @@
+/******************************************************************
+ * File:        CSVBenchmark.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.bench;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.epimorphics.dclib.framework.BindingEnv;
+import com.epimorphics.dclib.sources.CSVInput;
+import com.epimorphics.dclib.values.ValueFactory;
+
+/**
+ * Reading CSV rows and parsing cell values
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    byte[] csv;
+    String[] cells;
+
+    @Setup
+    public void setup() {
+        String data = BenchmarkData.csv(rows);
+        csv = data.getBytes(StandardCharsets.UTF_8);
+        cells = data.replace('\n', ',').split(",");
+    }
+
+    /**
+     * Read every row of the file as a binding environment of strings
+     */
+    @Benchmark
+    public void nextRow(Blackhole bh) throws Exception {
+        CSVInput in = new CSVInput(new ByteArrayInputStream(csv));
+        BindingEnv row;
+        while ((row = in.nextRow()) != null) {
+            bh.consume(row);
+        }
+        in.close();
+    }
+
+    /**
+     * Parse every cell of the file to a Value
+     */
+    @Benchmark
+    public void asValue(Blackhole bh) {
+        for (String cell : cells) {
+            bh.consume( ValueFactory.asValue(cell.trim()) );
+        }
+    }
+}
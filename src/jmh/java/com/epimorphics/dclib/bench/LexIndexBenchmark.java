@@ -0,0 +1,79 @@
+/******************************************************************
+ * File:        LexIndexBenchmark.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.epimorphics.dclib.sources.LexIndex;
+
+/**
+ * Lookups in a mapping source index, using keys which differ from
+ * the indexed labels in case and punctuation as well as misses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexIndexBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    LexIndex<String> index;
+    String[] keys;
+    int next = 0;
+
+    @Setup
+    public void setup() {
+        String[] labels = BenchmarkData.labels(size);
+        index = new LexIndex<>();
+        for (String label : labels) {
+            index.put(label, "http://example.com/" + label.hashCode());
+        }
+        index.compile();
+        Random random = new Random(BenchmarkData.SEED);
+        keys = new String[1024];
+        for (int i = 0; i < keys.length; i++) {
+            String label = labels[random.nextInt(labels.length)];
+            switch (i % 4) {
+            case 0:  keys[i] = label; break;
+            case 1:  keys[i] = label.toUpperCase(); break;
+            case 2:  keys[i] = " " + label.replace(' ', '-') + "."; break;
+            default: keys[i] = label + " missing"; break;
+            }
+        }
+    }
+
+    @Benchmark
+    public Object lookup() {
+        next = (next + 1) & (keys.length - 1);
+        return index.lookup(keys[next]);
+    }
+
+    @Benchmark
+    public Object lookupFuzzy() {
+        next = (next + 1) & (keys.length - 1);
+        return index.lookupFuzzy(keys[next], 2);
+    }
+}
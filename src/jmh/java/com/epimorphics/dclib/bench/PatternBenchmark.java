@@ -0,0 +1,77 @@
+/******************************************************************
+ * File:        PatternBenchmark.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.epimorphics.dclib.framework.BindingEnv;
+import com.epimorphics.dclib.framework.ConverterProcess;
+import com.epimorphics.dclib.framework.ConverterService;
+import com.epimorphics.dclib.framework.DataContext;
+import com.epimorphics.dclib.framework.Pattern;
+import com.epimorphics.dclib.values.ValueFactory;
+
+/**
+ * Evaluation of the different kinds of pattern, interpreted and compiled
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatternBenchmark {
+
+    @Param({"constant", "single", "method", "concatenated", "script"})
+    public String kind;
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    Pattern pattern;
+    BindingEnv env;
+    ConverterProcess proc;
+
+    @Setup
+    public void setup() {
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        switch (kind) {
+        case "constant":     pattern = new Pattern("<skos:Concept>", dc); break;
+        case "single":       pattern = new Pattern("{label}", dc); break;
+        case "method":       pattern = new Pattern("{category.toSegment()}", dc); break;
+        case "concatenated": pattern = new Pattern("<http://example.com/id/{category.toCleanSegment()}/{code.toLowerCase()}/{id}>", dc); break;
+        case "script":       pattern = new Pattern("{{label.toUpperCase(); code.toLowerCase()}}", dc); break;
+        default: throw new IllegalArgumentException(kind);
+        }
+        env = new BindingEnv( dc.getGlobalEnv() );
+        env.put("id", ValueFactory.asValue("1234"));
+        env.put("label", ValueFactory.asValue("North bridge"));
+        env.put("code", ValueFactory.asValue("AB1234"));
+        env.put("category", ValueFactory.asValue("Bathing Water"));
+        proc = new ConverterProcess(dc, null);
+        proc.setCompiledPatterns(compiled);
+    }
+
+    @Benchmark
+    public Object evaluate() {
+        return pattern.evaluate(env, proc, 1);
+    }
+}
@@ -0,0 +1,146 @@
+/******************************************************************
+ * File:        TemplateBenchmark.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.epimorphics.dclib.framework.BindingEnv;
+import com.epimorphics.dclib.framework.ConverterProcess;
+import com.epimorphics.dclib.framework.ConverterService;
+import com.epimorphics.dclib.framework.DataContext;
+import com.epimorphics.dclib.framework.Template;
+import com.epimorphics.dclib.templates.TemplateBase;
+import com.epimorphics.dclib.templates.TemplateFactory;
+import com.epimorphics.dclib.values.Row;
+import com.epimorphics.tasks.SimpleProgressMonitor;
+
+/**
+ * Template level benchmarks: node validation, conversion of single rows
+ * by a resource map template, and end to end conversion of a file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TemplateBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    File dir;
+    File dataFile;
+    DataContext dc;
+    Template template;
+    byte[] csv;
+    Node[] nodes;
+    int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("dclib-bench").toFile();
+        dataFile = BenchmarkData.write(dir, rows);
+
+        dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        template = TemplateFactory.templateFrom(BenchmarkData.templateFile(dir).getPath(), dc);
+        csv = BenchmarkData.csv(1000).getBytes(StandardCharsets.UTF_8);
+
+        nodes = new Node[] {
+            NodeFactory.createURI("http://example.com/id/bathing_water/1234"),
+            NodeFactory.createURI("http://example.com/def/category/river-basin"),
+            NodeFactory.createLiteralString("North bridge"),
+            NodeFactory.createLiteralDT("2014-10-03", XSDDatatype.XSDdate),
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * A freshly read row for each call of convertRow, so that cells are parsed
+     * as part of the conversion rather than served from an earlier pass.
+     * Reading the row is not included in the measurement.
+     */
+    @State(Scope.Thread)
+    public static class RowState {
+        ConverterProcess proc;
+        BindingEnv row;
+        int rowNumber;
+
+        @Setup(Level.Invocation)
+        public void nextRow(TemplateBenchmark bench) throws IOException {
+            row = (proc == null) ? null : proc.nextRow();
+            if (row == null) {
+                proc = new ConverterProcess(bench.dc, new ByteArrayInputStream(bench.csv));
+                proc.setTemplate(bench.template);
+                proc.setCompiledPatterns(bench.compiled);
+                proc.setOutputStream( StreamRDFLib.sinkNull() );
+                rowNumber = 0;
+                row = proc.nextRow();
+            }
+            rowNumber++;
+            row.put(ConverterProcess.ROW_OBJECT_NAME, new Row(rowNumber));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Node validateNode() {
+        next = (next + 1) & 3;
+        Node node = nodes[next];
+        TemplateBase.validateNode(node);
+        return node;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object convertRow(RowState state) {
+        return template.convertRow(state.proc, state.row, state.rowNumber);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void simpleConvert(Blackhole bh) throws IOException {
+        ConverterService service = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE);
+        service.setCompiledPatterns(compiled);
+        bh.consume( service.simpleConvert(BenchmarkData.templateFile(dir).getPath(), dataFile.getPath(), new SimpleProgressMonitor()) );
+    }
+}
@@ -26,10 +26,17 @@ import org.apache.jena.riot.RDFLanguages;
 import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.riot.system.StreamRDFWriter;
 
+import com.epimorphics.dclib.framework.ChunkedConverter;
+import com.epimorphics.dclib.framework.ConversionProfile;
+import com.epimorphics.dclib.framework.HttpFetchCache;
 import com.epimorphics.dclib.framework.ConverterProcess;
 import com.epimorphics.dclib.framework.ConverterService;
+import com.epimorphics.dclib.framework.DedupStreamRDF;
 import com.epimorphics.dclib.framework.DataContext;
 import com.epimorphics.dclib.framework.Template;
+import com.epimorphics.dclib.sources.LazyMapSource;
+import com.epimorphics.dclib.sources.MapSourceCache;
+import com.epimorphics.dclib.sources.MapSourceSnapshot;
 import com.epimorphics.dclib.templates.TemplateFactory;
 import com.epimorphics.tasks.LiveProgressMonitor;
 import com.epimorphics.tasks.ProgressMessage;
@@ -50,6 +57,19 @@ public class Main {
     public static final String NTHREADS_FLAG = "--nThreads";
     public static final String BATCH_FLAG = "--batch";
     public static final String COMPRESS_FLAG = "--compress";
+    public static final String PARALLEL_FLAG = "--parallel";
+    public static final String PIPELINE_FLAG = "--pipeline";
+    public static final String QUEUE_DEPTH_FLAG = "--queueDepth";
+    public static final String SPLIT_FLAG = "--split";
+    public static final String COMPILED_FLAG = "--compiled";
+    public static final String PROFILE_FLAG = "--profile";
+    public static final String SNAPSHOTS_FLAG = "--snapshots";
+    public static final String LAZY_SOURCES_FLAG = "--lazySources";
+    public static final String CACHE_SOURCES_FLAG = "--cacheSources";
+    public static final String FETCH_CACHE_FLAG = "--fetchCache";
+    public static final String OFFLINE_FLAG = "--offline";
+    public static final String PREFETCH_FLAG = "--prefetch";
+    public static final String DEDUP_FLAG = "--dedup";
     public static final String DEFAULT_PREFIXES_FILE = "--prefixes";
 
     public static void main(String[] argsIn) throws IOException {
@@ -79,6 +99,81 @@ public class Main {
             cargs.setCompress(true);
             args.remove(COMPRESS_FLAG);
         }
+        if (args.contains(PARALLEL_FLAG)) {
+            cargs.setParallel(true);
+            args.remove(PARALLEL_FLAG);
+        }
+        if (args.contains(SPLIT_FLAG)) {
+            cargs.setSplit(true);
+            args.remove(SPLIT_FLAG);
+        }
+        if (args.contains(COMPILED_FLAG)) {
+            cargs.setCompiled(true);
+            args.remove(COMPILED_FLAG);
+        }
+        if (args.contains(PROFILE_FLAG)) {
+            cargs.setProfile(true);
+            args.remove(PROFILE_FLAG);
+        }
+        if (args.contains(SNAPSHOTS_FLAG)) {
+            // Process-wide setting, applies to all commands
+            MapSourceSnapshot.setEnabledByDefault(true);
+            args.remove(SNAPSHOTS_FLAG);
+        }
+        if (args.contains(LAZY_SOURCES_FLAG)) {
+            // Process-wide setting, applies to all commands
+            LazyMapSource.setEnabledByDefault(true);
+            args.remove(LAZY_SOURCES_FLAG);
+        }
+        if (args.contains(CACHE_SOURCES_FLAG)) {
+            int i = args.indexOf(CACHE_SOURCES_FLAG);
+            try {
+                // Process-wide setting, applies to all commands
+                MapSourceCache.get().setCapacity( Integer.parseInt(args.get(i+1)) );
+                MapSourceCache.get().setEnabled(true);
+                args.remove(i);   // Flag
+                args.remove(i);   // Argument to flag (removing flag shunts it down)
+            } catch (Exception e) {
+                System.err.println("No legal argument for --cacheSources");
+                System.exit(1);
+            }
+        }
+        if (args.contains(PIPELINE_FLAG)) {
+            cargs.setPipeline(true);
+            args.remove(PIPELINE_FLAG);
+        }
+        if (args.contains(QUEUE_DEPTH_FLAG)) {
+            int i = args.indexOf(QUEUE_DEPTH_FLAG);
+            try {
+                cargs.setQueueDepth(  Integer.parseInt(args.get(i+1)) );
+                args.remove(i);   // Flag
+                args.remove(i);   // Argument to flag (removing flag shunts it down)
+            } catch (Exception e) {
+                System.err.println("No legal argument for --queueDepth");
+                System.exit(1);
+            }
+        }
+        if (args.contains(PREFETCH_FLAG)) {
+            int i = args.indexOf(PREFETCH_FLAG);
+            try {
+                cargs.setPrefetch(  Integer.parseInt(args.get(i+1)) );
+                args.remove(i);   // Flag
+                args.remove(i);   // Argument to flag (removing flag shunts it down)
+            } catch (Exception e) {
+                System.err.println("No legal argument for --prefetch");
+                System.exit(1);
+            }
+        }
+        if (args.contains(DEDUP_FLAG)) {
+            int i = args.indexOf(DEDUP_FLAG);
+            if (i == args.size() - 1) {
+                System.err.println("No legal argument for --dedup");
+                System.exit(1);
+            }
+            cargs.setDedup(args.get(i+1));
+            args.remove(i);   // Flag
+            args.remove(i);   // Argument to flag (removing flag shunts it down)
+        }
         if (args.contains(NTHREADS_FLAG)) {
             int i = args.indexOf(NTHREADS_FLAG);
             try {
@@ -100,6 +195,23 @@ public class Main {
             args.remove(i);   // Flag
             args.remove(i);   // Argument to flag (removing flag shunts it down)
         }
+        if (args.contains(FETCH_CACHE_FLAG)) {
+            boolean offline = args.remove(OFFLINE_FLAG);
+            int i = args.indexOf(FETCH_CACHE_FLAG);
+            if (i == args.size() - 1) {
+                System.err.println("No legal argument for --fetchCache");
+                System.exit(1);
+            }
+            // Process-wide setting, applies to all commands
+            HttpFetchCache cache = new HttpFetchCache( new File(args.get(i+1)) );
+            cache.setOffline(offline);
+            HttpFetchCache.setDefault(cache);
+            args.remove(i);   // Flag
+            args.remove(i);   // Argument to flag (removing flag shunts it down)
+        } else if (args.contains(OFFLINE_FLAG)) {
+            System.err.println("--offline requires --fetchCache");
+            System.exit(1);
+        }
         if (args.contains(DEFAULT_PREFIXES_FILE)) {
             int i = args.indexOf(DEFAULT_PREFIXES_FILE);
             if (i == args.size()) {
@@ -111,9 +223,22 @@ public class Main {
             args.remove(i);   // Argument to flag (removing flag shunts it down)
         }
 
+        if (cargs.isSplit() && (cargs.isDebug() || cargs.isProfile() || cargs.getPrefetch() > 0 || cargs.isPipeline() || cargs.getQueueDepth() > 0)) {
+            // Chunks are converted by separate plain processes
+            System.err.println("--split can't be combined with --debug, --profile, --prefetch, --pipeline or --queueDepth");
+            System.exit(1);
+        }
+        if (!cargs.isSplit() && !cargs.isStreaming() && (cargs.isPipeline() || cargs.getQueueDepth() > 0 || cargs.getPrefetch() > 0 || cargs.getDedup() != null)) {
+            // Conversions to an in-memory model run on a single thread and the model removes duplicates itself
+            System.err.println("--pipeline, --queueDepth, --prefetch and --dedup only apply with --streaming");
+            System.exit(1);
+        }
+        
         if (batchFile == null && args.size() < 2) {
-            System.err.println("Usage:  java -jar dclib.jar [--debug] [--streaming] [--ntriples] [--abortIfRowFails] [--prefixes prefixfile.ttl] template.json ... data.csv");
-            System.err.println("   or:  java -jar dclib.jar [--debug] [--streaming] [--ntriples] [--abortIfRowFails] [--prefixes prefixfile.ttl] [--nThreads 4] [--compress] --batch batchFile");
+            System.err.println("Usage:  java -jar dclib.jar [--debug] [--streaming] [--ntriples] [--abortIfRowFails] [--prefixes prefixfile.ttl] [--parallel] [--nThreads 4] [--pipeline] [--queueDepth 8] [--prefetch 64] [--dedup lru:1000000] [--split] [--compiled] [--profile] [--snapshots] [--lazySources] [--cacheSources 4] [--fetchCache dir [--offline]] template.json ... data.csv");
+            System.err.println("   or:  java -jar dclib.jar [--debug] [--streaming] [--ntriples] [--abortIfRowFails] [--prefixes prefixfile.ttl] [--parallel] [--nThreads 4] [--pipeline] [--queueDepth 8] [--prefetch 64] [--dedup lru:1000000] [--compiled] [--profile] [--snapshots] [--lazySources] [--cacheSources 4] [--fetchCache dir [--offline]] [--compress] --batch batchFile");
+            System.err.println("   --dedup lru:size | exact:maxInMemory | bloom:expected:fpp  drop repeated triples when streaming, exact spills to temporary files");
+            System.err.println("           beyond maxInMemory triples but keeps a small in-memory index of about 0.25 bytes per spilled triple");
             System.exit(1);
         }
         
@@ -205,7 +330,27 @@ public class Main {
                 SimpleProgressMonitor reporter = new LiveProgressMonitor();
     
                 boolean succeeded = false;
-                if (args.isStreaming()) {
+                if (args.isSplit()) {
+                    Template template = TemplateFactory.templateFrom(templateName, dc);
+                    
+                    File dataFileF = new File(dataFile);
+                    String filename = dataFileF.getName();
+                    dc.getGlobalEnv().put(ConverterProcess.FILE_NAME, filename);
+                    dc.getGlobalEnv().put(ConverterProcess.FILE_BASE_NAME, NameUtils.removeExtension(filename));
+                    
+                    ChunkedConverter converter = new ChunkedConverter(dc, template, dataFile, args.getnThreads());
+                    converter.setMessageReporter( reporter );
+                    converter.setAllowNullRows( !args.isNullRowAborts() );
+                    converter.setCompiledPatterns( args.isCompiled() );
+                    
+                    StreamRDF stream = StreamRDFWriter.getWriterStream(out,  args.isNtriples() ? Lang.NTRIPLES : Lang.TURTLE);
+                    if (args.getDedup() != null) {
+                        stream = DedupStreamRDF.fromSpec(stream, args.getDedup());
+                    }
+                    succeeded = converter.convert(stream);
+                    stream.finish();
+                    
+                } else if (args.isStreaming()) {
                     Template template = TemplateFactory.templateFrom(templateName, dc);
                     
                     File dataFileF = new File(dataFile);
@@ -220,14 +365,29 @@ public class Main {
                     process.setTemplate( template );
                     process.setMessageReporter( reporter );
                     process.setAllowNullRows( !args.isNullRowAborts() );
+                    process.setThreads( args.getRowThreads() );
+                    process.setPipelined( args.isPipeline() );
+                    process.setQueueDepth( args.getQueueDepth() );
+                    process.setPrefetch( args.getPrefetch() );
+                    process.setCompiledPatterns( args.isCompiled() );
+                    if (args.isProfile()) {
+                        process.setMetricsListener( new ConversionProfile() );
+                    }
                     
                     StreamRDF stream = StreamRDFWriter.getWriterStream(out,  args.isNtriples() ? Lang.NTRIPLES : Lang.TURTLE);
+                    if (args.getDedup() != null) {
+                        stream = DedupStreamRDF.fromSpec(stream, args.getDedup());
+                    }
                     process.setOutputStream( stream );
                     
                     succeeded = process.process();
                     stream.finish();
                     
                 } else {
+                    service.setThreads( args.getRowThreads() );
+                    service.setCompiledPatterns( args.isCompiled() );
+                    service.setProfile( args.isProfile() );
+                    service.setPrefetch( args.getPrefetch() );
                     Model m = service.simpleConvert(templateName, dataFile, reporter, args.isDebug(), !args.isNullRowAborts());
                     if (m != null) {
                         m.write(out, args.isNtriples() ? RDFLanguages.strLangNTriples : RDFLanguages.strLangTurtle);
@@ -260,6 +420,14 @@ public class Main {
         int nThreads = 4;
         List<String> auxTemplates = new ArrayList<>();
         boolean compress = false;
+        boolean parallel = false;
+        boolean pipeline = false;
+        boolean split = false;
+        boolean compiled = false;
+        boolean profile = false;
+        int queueDepth = 0;
+        int prefetch = 0;
+        String dedup = null;
         String defaultPrefixesFile = ConverterService.DEFAULT_PREFIXES_RESOURCE;
         
         public boolean isCompress() {
@@ -268,6 +436,63 @@ public class Main {
         public void setCompress(boolean compress) {
             this.compress = compress;
         }
+        public boolean isParallel() {
+            return parallel;
+        }
+        public void setParallel(boolean parallel) {
+            this.parallel = parallel;
+        }
+        /** Number of threads to use for converting the rows of a single file */
+        public int getRowThreads() {
+            return parallel ? nThreads : 1;
+        }
+        /** Split single files into chunks converted on separate threads, implies streaming */
+        public boolean isSplit() {
+            return split;
+        }
+        public void setSplit(boolean split) {
+            this.split = split;
+        }
+        /** Evaluate template patterns using compiled expressions instead of JEXL */
+        public boolean isCompiled() {
+            return compiled;
+        }
+        public void setCompiled(boolean compiled) {
+            this.compiled = compiled;
+        }
+        /** Report the time spent in each template and pattern, not supported for split conversions */
+        public boolean isProfile() {
+            return profile;
+        }
+        public void setProfile(boolean profile) {
+            this.profile = profile;
+        }
+        public boolean isPipeline() {
+            return pipeline;
+        }
+        public void setPipeline(boolean pipeline) {
+            this.pipeline = pipeline;
+        }
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+        public void setQueueDepth(int queueDepth) {
+            this.queueDepth = queueDepth;
+        }
+        /** Number of rows to read ahead so their fetch() data can be retrieved in the background */
+        public int getPrefetch() {
+            return prefetch;
+        }
+        public void setPrefetch(int prefetch) {
+            this.prefetch = prefetch;
+        }
+        /** Drop repeated triples from streamed output, "lru:size", "exact:maxInMemory" or "bloom:expected:fpp" */
+        public String getDedup() {
+            return dedup;
+        }
+        public void setDedup(String dedup) {
+            this.dedup = dedup;
+        }
         public boolean isDebug() {
             return debug;
         }
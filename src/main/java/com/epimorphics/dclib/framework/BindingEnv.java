@@ -10,6 +10,7 @@
 package com.epimorphics.dclib.framework;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.jexl2.JexlContext;
@@ -66,14 +67,16 @@ public class BindingEnv extends HashMap<String, Object> implements Map<String, O
     }
     
     // Sometimes the java type system just seems to work against you
-    private Object doGet(Object key) {
+    protected Object doGet(Object key) {
         Object v = super.get(key);
         if (v == null && parent != null) {
             return parent.get(key);
-        } else if (v instanceof ValueNull) {
-            return null;
         }
-        return v;
+        return unwrapNull(v);
+    }
+    
+    protected static Object unwrapNull(Object v) {
+        return (v instanceof ValueNull) ? null : v;
     }
 
     @Override
@@ -86,6 +89,16 @@ public class BindingEnv extends HashMap<String, Object> implements Map<String, O
         return doGet(name) != null;
     }
     
+    /**
+     * Return a new environment, inheriting from this one, in which the
+     * given names are expected to be bound. Row environments use the
+     * names to flatten the result rather than chaining another layer.
+     * @param names the names to be bound, should be the same list instance on each call
+     */
+    public BindingEnv extend(List<String> names) {
+        return new BindingEnv(this);
+    }
+    
     public void setParent(BindingEnv parent) {
         this.parent = parent;
     }
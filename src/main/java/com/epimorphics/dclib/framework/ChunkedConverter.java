@@ -0,0 +1,215 @@
+/******************************************************************
+ * File:        ChunkedConverter.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epimorphics.dclib.sources.CSVChunk;
+import com.epimorphics.tasks.ProgressMessage;
+import com.epimorphics.tasks.ProgressMonitorReporter;
+import com.epimorphics.tasks.SimpleProgressMonitor;
+import com.epimorphics.tasks.TaskState;
+import com.epimorphics.util.EpiException;
+
+/**
+ * Converts a single large CSV file by splitting it into record aligned
+ * chunks and running a separate ConverterProcess on each chunk concurrently.
+ * Each chunk is converted to a temporary N-Triples file and the results are
+ * then replayed, in order, to the final output stream. Row numbers and
+ * messages match those of a conversion of the whole file.
+ * <p>
+ * Templates which are not parallel safe are converted as a single chunk.
+ * Triples from the template's one-off preamble are only emitted once.
+ * </p>
+ */
+public class ChunkedConverter {
+    static Logger log = LoggerFactory.getLogger( ChunkedConverter.class );
+
+    protected DataContext dc;
+    protected Template template;
+    protected String dataFile;
+    protected int nChunks;
+    protected ProgressMonitorReporter reporter = new SimpleProgressMonitor();
+    protected boolean allowNullRows = true;
+    protected boolean compiledPatterns = false;
+
+    public ChunkedConverter(DataContext dc, Template template, String dataFile, int nChunks) {
+        this.dc = dc;
+        this.template = template;
+        this.dataFile = dataFile;
+        this.nChunks = nChunks;
+    }
+
+    public void setMessageReporter(ProgressMonitorReporter reporter) {
+        this.reporter = reporter;
+    }
+
+    public void setAllowNullRows(boolean allowNullRows) {
+        this.allowNullRows = allowNullRows;
+    }
+
+    public void setCompiledPatterns(boolean compiledPatterns) {
+        this.compiledPatterns = compiledPatterns;
+    }
+
+    /**
+     * Run the conversion, sending the results to the given stream.
+     * The caller is responsible for starting and finishing the stream.
+     * @return true if all chunks were converted successfully
+     */
+    public boolean convert(StreamRDF out) throws IOException {
+        List<CSVChunk> chunks = CSVChunk.split(dataFile, template.isParallelSafe() ? nChunks : 1);
+        if (chunks.size() == 1) {
+            ConverterProcess process = newProcess(chunks.get(0), reporter);
+            process.setOutputStream(out);
+            return process.process();
+        }
+
+        reporter.setState(TaskState.Running);
+        reporter.report("Converting " + dataFile + " as " + chunks.size() + " chunks");
+        ExecutorService pool = Executors.newFixedThreadPool(chunks.size());
+        List<File> results = new ArrayList<>();
+        List<ChunkMonitor> monitors = new ArrayList<>();
+        List<Future<Boolean>> jobs = new ArrayList<>();
+        try {
+            for (int i = 0; i < chunks.size(); i++) {
+                CSVChunk chunk = chunks.get(i);
+                File result = File.createTempFile("dclib-chunk", ".nt");
+                results.add(result);
+                ChunkMonitor monitor = new ChunkMonitor();
+                monitors.add(monitor);
+                boolean first = i == 0;
+                jobs.add( pool.submit( () -> convertChunk(chunk, first, result, monitor) ) );
+            }
+            boolean ok = true;
+            for (int i = 0; i < jobs.size(); i++) {
+                boolean converted = true;
+                try {
+                    ok &= jobs.get(i).get();
+                } catch (Exception e) {
+                    reporter.reportError("Failed to convert " + chunks.get(i) + ": " + e);
+                    ok = false;
+                    converted = false;
+                }
+                monitors.get(i).replayTo(reporter);
+                if (converted) {
+                    // As for a single process, rows which did convert are output even if others failed
+                    replay(results.get(i), out);
+                }
+            }
+            if (!ok) {
+                reporter.setFailed();
+            }
+            reporter.setState(TaskState.Terminated);
+            return reporter.succeeded();
+        } finally {
+            pool.shutdownNow();
+            for (File result : results) {
+                if ( ! result.delete() ) {
+                    log.warn("Failed to delete temporary file " + result);
+                }
+            }
+        }
+    }
+
+    protected ConverterProcess newProcess(CSVChunk chunk, ProgressMonitorReporter monitor) throws IOException {
+        ConverterProcess process = ConverterProcess.forSource(dc, chunk.open());
+        process.setTemplate(template);
+        process.setMessageReporter(monitor);
+        process.setAllowNullRows(allowNullRows);
+        process.setCompiledPatterns(compiledPatterns);
+        return process;
+    }
+
+    protected boolean convertChunk(CSVChunk chunk, boolean first, File result, ProgressMonitorReporter monitor) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(result))) {
+            ConverterProcess process = newProcess(chunk, monitor);
+            process.setEmitPreamble(first);
+            StreamRDF stream = StreamRDFWriter.getWriterStream(os, Lang.NTRIPLES);
+            process.setOutputStream(stream);
+            stream.start();
+            boolean ok = process.process();
+            stream.finish();
+            return ok;
+        }
+    }
+
+    /**
+     * Records the messages from converting one chunk, noting which were
+     * errors so they can be passed on with the same severity.
+     */
+    protected static class ChunkMonitor extends SimpleProgressMonitor {
+        protected final BitSet errors = new BitSet();
+
+        @Override
+        public synchronized void reportError(String message) {
+            super.reportError(message);
+            errors.set( getMessages().size() - 1 );
+        }
+
+        @Override
+        public synchronized void reportError(String message, int lineNumber) {
+            super.reportError(message, lineNumber);
+            errors.set( getMessages().size() - 1 );
+        }
+
+        synchronized void replayTo(ProgressMonitorReporter reporter) {
+            List<ProgressMessage> messages = getMessages();
+            for (int i = 0; i < messages.size(); i++) {
+                ProgressMessage message = messages.get(i);
+                if (errors.get(i)) {
+                    reporter.reportError(message.getMessage(), message.getLineNumber());
+                } else {
+                    reporter.report(message.getMessage(), message.getLineNumber());
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse a chunk's results into the final stream. Blank node labels are
+     * kept so that shared blank nodes (e.g. from bnodeFor) stay shared across chunks.
+     */
+    protected void replay(File result, StreamRDF out) throws IOException {
+        StreamRDF body = new StreamRDFWrapper(out) {
+            @Override public void start() {}
+            @Override public void finish() {}
+        };
+        try (InputStream in = new BufferedInputStream(new FileInputStream(result))) {
+            RDFParser.source(in)
+                .lang(Lang.NTRIPLES)
+                .labelToNode( LabelToNode.createUseLabelAsGiven() )
+                .parse(body);
+        } catch (Exception e) {
+            throw new EpiException("Failed to merge chunk results from " + result, e);
+        }
+    }
+}
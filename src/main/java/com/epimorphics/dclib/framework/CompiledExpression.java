@@ -0,0 +1,447 @@
+/******************************************************************
+ * File:        CompiledExpression.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.jexl2.DebugInfo;
+import org.apache.commons.jexl2.JexlInfo;
+import org.apache.commons.jexl2.internal.AbstractExecutor;
+import org.apache.commons.jexl2.introspection.JexlMethod;
+import org.apache.commons.jexl2.introspection.JexlPropertyGet;
+import org.apache.commons.jexl2.introspection.Uberspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pattern expression compiled to a tree of direct evaluation steps, as an
+ * alternative to interpreting the JEXL syntax tree on every row.
+ * <p>
+ * Only covers the forms that make up most templates: variable references
+ * (including dotted names), property access, method calls, calls to the
+ * global functions and string, integer and boolean literals. Anything else
+ * (operators, conditionals, scripts) is not compiled and is left to JEXL.
+ * </p>
+ * <p>
+ * Methods and properties are resolved by JEXL's own introspection so the
+ * same method is chosen as the interpreter would. Each call site caches
+ * the resolved method, as a MethodHandle where possible, guarded by the
+ * classes of the target and arguments. Failures follow JEXL's lenient and
+ * silent settings: an undefined variable, a missing method or an exception
+ * within a method all give a null result.
+ * </p>
+ */
+public abstract class CompiledExpression {
+    static final Logger log = LoggerFactory.getLogger( CompiledExpression.class );
+
+    protected static final JexlInfo INFO = new DebugInfo("compiled-pattern", 0, 0);
+
+    protected static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "or", "and", "eq", "ne", "lt", "gt", "le", "ge", "div", "mod", "not",
+            "null", "true", "false", "new", "var", "do", "while", "for", "foreach",
+            "in", "if", "else", "size", "empty", "return", "function"));
+
+    /**
+     * Evaluate the expression in the given environment
+     * @return the result or null if undefined or evaluation failed
+     */
+    public abstract Object evaluate(BindingEnv env);
+
+    /**
+     * Compile an expression
+     * @param src the JEXL source of the expression
+     * @param uberspect the JEXL introspector used to resolve methods and properties
+     * @param functions the target of function calls with no namespace
+     * @return the compiled expression, or null if the expression uses constructs which can't be compiled
+     */
+    public static CompiledExpression compile(String src, Uberspect uberspect, Object functions) {
+        return new Parser(src, uberspect, functions).parseAll();
+    }
+
+    // ---- Expression forms ----
+
+    protected static class Literal extends CompiledExpression {
+        final Object value;
+
+        Literal(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(BindingEnv env) {
+            return value;
+        }
+    }
+
+    /**
+     * A variable followed by a chain of property accesses and method calls.
+     * If the variable is undefined then, as in JEXL, the leading property
+     * names are tried as parts of a dotted variable name such as "a.b".
+     */
+    protected static class Reference extends CompiledExpression {
+        final String root;
+        final Step[] steps;
+        final String[] dottedNames;
+
+        Reference(String root, List<Step> steps) {
+            this.root = root;
+            this.steps = steps.toArray(new Step[0]);
+            List<String> dotted = new ArrayList<>();
+            String name = root;
+            for (Step step : steps) {
+                if ( ! (step instanceof PropertyStep) ) break;
+                name = name + "." + step.name;
+                dotted.add(name);
+            }
+            this.dottedNames = dotted.toArray(new String[0]);
+        }
+
+        @Override
+        public Object evaluate(BindingEnv env) {
+            Object value = env.get(root);
+            int next = 0;
+            if (value == null) {
+                for (int i = 0; i < dottedNames.length && value == null; i++) {
+                    value = env.get(dottedNames[i]);
+                    next = i + 1;
+                }
+            }
+            for (int i = next; i < steps.length && value != null; i++) {
+                value = steps[i].apply(value, env);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * A call to a global function, followed by a chain of property accesses and method calls
+     */
+    protected static class FunctionCall extends CompiledExpression {
+        final Object functions;
+        final MethodStep call;
+        final Step[] steps;
+
+        FunctionCall(Object functions, MethodStep call, List<Step> steps) {
+            this.functions = functions;
+            this.call = call;
+            this.steps = steps.toArray(new Step[0]);
+        }
+
+        @Override
+        public Object evaluate(BindingEnv env) {
+            Object value = call.apply(functions, env);
+            for (int i = 0; i < steps.length && value != null; i++) {
+                value = steps[i].apply(value, env);
+            }
+            return value;
+        }
+    }
+
+    // ---- Steps within a reference chain ----
+
+    protected static abstract class Step {
+        final String name;
+        final Uberspect uberspect;
+
+        Step(String name, Uberspect uberspect) {
+            this.name = name;
+            this.uberspect = uberspect;
+        }
+
+        abstract Object apply(Object target, BindingEnv env);
+    }
+
+    protected static class PropertyStep extends Step {
+        volatile Binding binding;
+
+        PropertyStep(String name, Uberspect uberspect) {
+            super(name, uberspect);
+        }
+
+        @Override
+        Object apply(Object target, BindingEnv env) {
+            Binding b = binding;
+            if (b == null || !b.matches(target, null)) {
+                JexlPropertyGet get = uberspect.getPropertyGet(target, name, INFO);
+                if (get == null) {
+                    log.debug("No property " + name + " on " + target.getClass());
+                    return null;
+                }
+                b = new Binding(target, null, handleFor(get, target, null), get);
+                binding = b;
+            }
+            try {
+                return b.handle != null ? (Object) b.handle.invokeExact(target, Binding.NO_ARGS) : b.getter.invoke(target);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                log.debug("Failed to get property " + name + " of " + target, e);
+                return null;
+            }
+        }
+    }
+
+    protected static class MethodStep extends Step {
+        final CompiledExpression[] args;
+        volatile Binding binding;
+
+        MethodStep(String name, Uberspect uberspect, List<CompiledExpression> args) {
+            super(name, uberspect);
+            this.args = args.toArray(new CompiledExpression[0]);
+        }
+
+        @Override
+        Object apply(Object target, BindingEnv env) {
+            Object[] argv = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                argv[i] = args[i].evaluate(env);
+            }
+            Binding b = binding;
+            if (b == null || !b.matches(target, argv)) {
+                JexlMethod method = uberspect.getMethod(target, name, argv, INFO);
+                if (method == null) {
+                    log.debug("No method " + name + " on " + target);
+                    return null;
+                }
+                b = new Binding(target, argv, handleFor(method, target, argv), method);
+                binding = b;
+            }
+            try {
+                return b.handle != null ? (Object) b.handle.invokeExact(target, argv) : b.method.invoke(target, argv);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                log.debug("Failed to call " + name + " on " + target, e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A resolved method or property getter, valid for a given target class
+     * (or target object for static functions) and argument classes.
+     */
+    protected static class Binding {
+        static final Object[] NO_ARGS = new Object[0];
+
+        final Object key;
+        final Class<?>[] argClasses;
+        final MethodHandle handle;     // (Object, Object[])Object, or null to use the JEXL executor
+        final JexlMethod method;
+        final JexlPropertyGet getter;
+
+        Binding(Object target, Object[] args, MethodHandle handle, Object executor) {
+            this.key = keyOf(target);
+            this.argClasses = classesOf(args);
+            this.handle = handle;
+            this.method = executor instanceof JexlMethod ? (JexlMethod) executor : null;
+            this.getter = executor instanceof JexlPropertyGet ? (JexlPropertyGet) executor : null;
+        }
+
+        boolean matches(Object target, Object[] args) {
+            if (keyOf(target) != key) return false;
+            if (args == null) return true;
+            for (int i = 0; i < args.length; i++) {
+                Object arg = args[i];
+                if ((arg == null ? null : arg.getClass()) != argClasses[i]) return false;
+            }
+            return true;
+        }
+
+        static Object keyOf(Object target) {
+            return target instanceof Class<?> ? target : target.getClass();
+        }
+
+        static Class<?>[] classesOf(Object[] args) {
+            if (args == null) return null;
+            Class<?>[] classes = new Class<?>[args.length];
+            for (int i = 0; i < args.length; i++) {
+                classes[i] = args[i] == null ? null : args[i].getClass();
+            }
+            return classes;
+        }
+    }
+
+    /**
+     * Build a direct handle, of type (Object, Object[])Object, for a method chosen by JEXL
+     * if it can be called without any of JEXL's argument conversions.
+     * Returns null if the JEXL executor should be used instead.
+     */
+    protected static MethodHandle handleFor(Object executor, Object target, Object[] args) {
+        if ( ! (executor instanceof AbstractExecutor) ) return null;
+        Method m = ((AbstractExecutor)executor).getMethod();
+        if (m == null || m.isVarArgs()) return null;
+        int n = args == null ? 0 : args.length;
+        Class<?>[] params = m.getParameterTypes();
+        if (params.length != n) return null;
+        for (int i = 0; i < n; i++) {
+            if ( ! directlyAssignable(params[i], args[i]) ) return null;
+        }
+        try {
+            MethodHandle h = MethodHandles.publicLookup().unreflect(m);
+            if (Modifier.isStatic(m.getModifiers())) {
+                h = MethodHandles.dropArguments(h, 0, Object.class);
+            }
+            return h.asType( MethodType.genericMethodType(n + 1) ).asSpreader(Object[].class, n);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static boolean directlyAssignable(Class<?> param, Object arg) {
+        if (param.isPrimitive()) {
+            return arg != null && MethodType.methodType(param).wrap().returnType() == arg.getClass();
+        }
+        return arg == null || param.isInstance(arg);
+    }
+
+    // ---- Parser for the supported subset of JEXL ----
+
+    protected static class Parser {
+        final String src;
+        final Uberspect uberspect;
+        final Object functions;
+        int pos = 0;
+
+        Parser(String src, Uberspect uberspect, Object functions) {
+            this.src = src;
+            this.uberspect = uberspect;
+            this.functions = functions;
+        }
+
+        CompiledExpression parseAll() {
+            CompiledExpression expr = parseExpression();
+            skipSpace();
+            return (expr != null && pos == src.length()) ? expr : null;
+        }
+
+        CompiledExpression parseExpression() {
+            skipSpace();
+            if (pos >= src.length()) return null;
+            char c = src.charAt(pos);
+            if (c == '\'' || c == '"') {
+                return parseString(c);
+            } else if (Character.isDigit(c)) {
+                return parseInteger();
+            }
+            String name = parseIdentifier();
+            if (name == null) return null;
+            switch (name) {
+            case "true":  return new Literal(Boolean.TRUE);
+            case "false": return new Literal(Boolean.FALSE);
+            case "null":  return new Literal(null);
+            default:
+                if (KEYWORDS.contains(name)) return null;
+            }
+            skipSpace();
+            if (peek() == '(') {
+                if (functions == null) return null;
+                List<CompiledExpression> args = parseArgs();
+                if (args == null) return null;
+                List<Step> steps = parseSteps();
+                if (steps == null) return null;
+                return new FunctionCall(functions, new MethodStep(name, uberspect, args), steps);
+            }
+            List<Step> steps = parseSteps();
+            return steps == null ? null : new Reference(name, steps);
+        }
+
+        List<Step> parseSteps() {
+            List<Step> steps = new ArrayList<>();
+            while (true) {
+                skipSpace();
+                if (peek() != '.') return steps;
+                pos++;
+                skipSpace();
+                String name = parseIdentifier();
+                if (name == null || KEYWORDS.contains(name)) return null;
+                skipSpace();
+                if (peek() == '(') {
+                    List<CompiledExpression> args = parseArgs();
+                    if (args == null) return null;
+                    steps.add( new MethodStep(name, uberspect, args) );
+                } else {
+                    steps.add( new PropertyStep(name, uberspect) );
+                }
+            }
+        }
+
+        List<CompiledExpression> parseArgs() {
+            pos++;   // (
+            List<CompiledExpression> args = new ArrayList<>();
+            skipSpace();
+            if (peek() == ')') {
+                pos++;
+                return args;
+            }
+            while (true) {
+                CompiledExpression arg = parseExpression();
+                if (arg == null) return null;
+                args.add(arg);
+                skipSpace();
+                char c = peek();
+                pos++;
+                if (c == ')') return args;
+                if (c != ',') return null;
+            }
+        }
+
+        CompiledExpression parseString(char quote) {
+            int end = src.indexOf(quote, pos + 1);
+            if (end < 0) return null;
+            String value = src.substring(pos + 1, end);
+            if (value.indexOf('\\') >= 0) return null;   // leave escapes to JEXL
+            pos = end + 1;
+            return new Literal(value);
+        }
+
+        CompiledExpression parseInteger() {
+            int start = pos;
+            while (pos < src.length() && Character.isDigit(src.charAt(pos))) pos++;
+            if (pos < src.length() && Character.isLetterOrDigit(src.charAt(pos)) || peek() == '.') {
+                return null;   // long, float or other number forms
+            }
+            try {
+                return new Literal( Integer.valueOf(src.substring(start, pos)) );
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        String parseIdentifier() {
+            int start = pos;
+            while (pos < src.length()) {
+                char c = src.charAt(pos);
+                if (Character.isLetter(c) || c == '_' || c == '$' || (pos > start && Character.isDigit(c))) {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            return pos > start ? src.substring(start, pos) : null;
+        }
+
+        char peek() {
+            return pos < src.length() ? src.charAt(pos) : 0;
+        }
+
+        void skipSpace() {
+            while (pos < src.length() && Character.isWhitespace(src.charAt(pos))) pos++;
+        }
+    }
+}
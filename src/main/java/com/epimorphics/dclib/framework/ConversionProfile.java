@@ -0,0 +1,167 @@
+/******************************************************************
+ * File:        ConversionProfile.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A MetricsListener which accumulates statistics for each template and
+ * pattern and reports them, slowest first, at the end of the conversion.
+ * Percentiles are approximate, taken from power of two time buckets.
+ */
+public class ConversionProfile implements MetricsListener {
+    static final Logger log = LoggerFactory.getLogger( ConversionProfile.class );
+
+    // Templates and patterns don't override equals so are keyed by identity
+    protected final Map<Object, Stats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public void templateConverted(Template template, int rowNumber, long nanos, long triples, Outcome outcome) {
+        Stats s = statsFor(template);
+        s.record(nanos, outcome);
+        s.triples.add(triples);
+    }
+
+    @Override
+    public void patternEvaluated(Pattern pattern, int rowNumber, long nanos, Outcome outcome) {
+        statsFor(pattern).record(nanos, outcome);
+    }
+
+    /**
+     * Report the profile through the process's message reporter, and to the log
+     */
+    @Override
+    public void conversionFinished(ConverterProcess process) {
+        String report = report();
+        process.getMessageReporter().report(report);
+        log.info(report);
+    }
+
+    protected Stats statsFor(Object key) {
+        Stats s = stats.get(key);
+        if (s == null) {
+            s = stats.computeIfAbsent(key, k -> new Stats( k instanceof Template ? "Template " + ((Template)k).getName() : "Pattern " + k ));
+        }
+        return s;
+    }
+
+    /**
+     * Return the statistics gathered so far, in decreasing order of total time
+     */
+    public List<Stats> getStats() {
+        List<Stats> result = new ArrayList<>( stats.values() );
+        result.sort( Comparator.comparingLong(Stats::getTotalNanos).reversed() );
+        return result;
+    }
+
+    /**
+     * Return the statistics for a template or pattern, or null if it has not been used
+     */
+    public Stats getStats(Object templateOrPattern) {
+        return stats.get(templateOrPattern);
+    }
+
+    /**
+     * Format the statistics as a table
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder("Conversion profile:\n");
+        report.append( String.format("%10s %12s %10s %10s %10s %8s %8s %10s  %s%n",
+                "count", "total ms", "mean us", "p50 us", "p99 us", "nulls", "errors", "triples", "name") );
+        for (Stats s : getStats()) {
+            report.append( String.format("%10d %12.1f %10.1f %10.1f %10.1f %8d %8d %10d  %s%n",
+                    s.getCount(), s.getTotalNanos() / 1e6, s.getMeanNanos() / 1e3,
+                    s.getPercentileNanos(0.5) / 1e3, s.getPercentileNanos(0.99) / 1e3,
+                    s.getNullResults(), s.getErrors(), s.getTriples(), s.getLabel()) );
+        }
+        return report.toString();
+    }
+
+    /**
+     * Statistics for a single template or pattern
+     */
+    public static class Stats {
+        protected final String label;
+        protected final LongAdder count = new LongAdder();
+        protected final LongAdder nanos = new LongAdder();
+        protected final LongAdder nullResults = new LongAdder();
+        protected final LongAdder errors = new LongAdder();
+        protected final LongAdder triples = new LongAdder();
+        protected final AtomicLongArray buckets = new AtomicLongArray(64);   // bucket i holds times < 2^i ns
+
+        public Stats(String label) {
+            this.label = label;
+        }
+
+        protected void record(long elapsed, Outcome outcome) {
+            count.increment();
+            nanos.add(elapsed);
+            if (outcome == Outcome.NULL_RESULT) {
+                nullResults.increment();
+            } else if (outcome == Outcome.ERROR) {
+                errors.increment();
+            }
+            buckets.incrementAndGet( 64 - Long.numberOfLeadingZeros( Math.max(elapsed, 0) ) );
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return nanos.sum();
+        }
+
+        public double getMeanNanos() {
+            long n = getCount();
+            return n == 0 ? 0 : (double) getTotalNanos() / n;
+        }
+
+        /**
+         * Return an upper bound on the given percentile (0-1) of evaluation times
+         */
+        public long getPercentileNanos(double percentile) {
+            long n = getCount();
+            long target = (long) Math.ceil(n * percentile);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target && seen > 0) {
+                    return i == 0 ? 0 : (1L << Math.min(i, 62));
+                }
+            }
+            return 0;
+        }
+
+        public long getNullResults() {
+            return nullResults.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getTriples() {
+            return triples.sum();
+        }
+    }
+}
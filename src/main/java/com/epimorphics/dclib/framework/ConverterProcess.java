@@ -11,20 +11,28 @@ package com.epimorphics.dclib.framework;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map.Entry;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.opencsv.exceptions.CsvValidationException;
 import org.apache.commons.collections.map.LRUMap;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWrapper;
 import org.apache.jena.riot.system.stream.Locator;
 import org.apache.jena.riot.system.stream.StreamManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.epimorphics.dclib.sources.CSVInput;
+import com.epimorphics.dclib.sources.CSVRecord;
 import com.epimorphics.dclib.templates.TemplateBase;
+import com.epimorphics.dclib.values.ColumnTypes;
 import com.epimorphics.dclib.values.Row;
 import com.epimorphics.dclib.values.ValueDate;
 import com.epimorphics.dclib.values.ValueFactory;
@@ -43,7 +51,16 @@ import org.apache.jena.rdf.model.ModelFactory;
 /**
  * An instance of a converter running on a specific data configuration.
  * Provides access to all the context information, data, mapping sources
- * and output configuration required. Not thread safe.
+ * and output configuration required.
+ * <p>
+ * A process is configured and run from a single thread. While running it may
+ * convert rows on worker threads, see {@link #setThreads(int)} and
+ * {@link #setPrefetch(int)}; template code can find the process with
+ * {@link #get()} and writes through {@link #getOutputStream()}, which
+ * buffers per worker. Only the calling thread writes to the real output.
+ * When the output is the in-memory result model, which templates may
+ * navigate, rows are always converted on the calling thread.
+ * </p>
  * 
  * @author <a href="mailto:dave@epimorphics.com">Dave Reynolds</a>
  */
@@ -63,6 +80,7 @@ public class ConverterProcess {
     static final String META = "meta";
     
     private static final ThreadLocal<ConverterProcess> current = new ThreadLocal<>();
+    private static final StreamRDF DISCARD = StreamRDFLib.sinkNull();
     private static final DataContext defaultDC = new DataContext();
 
     protected int BATCH_SIZE = 1000;
@@ -73,6 +91,16 @@ public class ConverterProcess {
 
     protected boolean debug = false;
     protected boolean allowNullRows = true;
+    protected int nThreads = 1;
+    protected boolean pipelined = false;
+    protected int queueDepth = 0;
+    protected int prefetchWindow = 0;
+    protected RowSchema rowSchema;
+    protected ColumnTypes columnTypes;
+    protected boolean emitPreamble = true;
+    protected boolean projectColumns = true;
+    protected boolean compiledPatterns = false;
+    protected BitSet droppedColumns;          // Columns not referenced by the template, null if all are used
     
     protected Template template;
     protected BindingEnv env;
@@ -80,8 +108,18 @@ public class ConverterProcess {
     
     protected StreamRDF   outputStream;
     protected Model  result;   // May not be used if the stream is set directly  
+    protected boolean outputToModel = false;  // True if the output stream writes to the result model
+    protected final ThreadLocal<StreamRDF> rowOutput = new ThreadLocal<>();   // Per-worker buffer in parallel mode
+    protected MetricsListener metrics;        // Null unless profiling
+    protected final ThreadLocal<TripleCounter> tripleCount = new ThreadLocal<>();    // Triples emitted by the current thread, when profiling
+    protected final List<Runnable> finishActions = new ArrayList<>();
+    protected final Map<MapSource, Set<Node>> enriched = new ConcurrentHashMap<>();   // Matches whose enrichment has been output
+    protected final Set<Node> described = ConcurrentHashMap.newKeySet();     // Resources whose shared description has been output
     
     protected LRUMap fetchCache = new LRUMap(MAX_FETCH_CACHE);
+    protected HttpFetchCache httpCache = HttpFetchCache.getDefault();     // Shared disk cache for http fetches, may be null
+    protected volatile FetchPrefetcher prefetcher;    // Non-null while converting with fetch prefetching
+    protected final ThreadLocal<ProgressMonitorReporter> speculative = new ThreadLocal<>();    // Set while speculatively converting a row
     
 	// During static class initialisation replaced the builtin Locator HTTP with one that doesn't accept "*/*" in
 	// the mix.
@@ -97,6 +135,17 @@ public class ConverterProcess {
 	}
     
     public ConverterProcess(DataContext context, InputStream data) {
+        this(context, data, null);
+    }
+    
+    /**
+     * Create a process to convert an already opened source, such as one chunk of a larger file
+     */
+    public static ConverterProcess forSource(DataContext context, CSVInput data) {
+        return new ConverterProcess(context, null, data);
+    }
+    
+    protected ConverterProcess(DataContext context, InputStream data, CSVInput source) {
         dataContext = new DataContext( context );
         
         // Could flatten env here to avoid chaining lookup
@@ -106,6 +155,8 @@ public class ConverterProcess {
             if (data != null) {
                 // This is the normal path, null input is normally only used in testing
                 dataSource = new CSVInput( data );
+            } else {
+                dataSource = source;
             }
 
             // Default is to converter into an in-memory model, can override by setting explicit StreamRDF dest
@@ -154,6 +205,101 @@ public class ConverterProcess {
         this.allowNullRows = allowed;
     }
 
+    /**
+     * Set the number of worker threads used to convert rows. Rows are still
+     * read and their results emitted in order so the output is the same as for
+     * a single threaded run. Templates which are not parallel safe, debug
+     * runs, and runs whose output is the in-memory result model rather than
+     * a stream, are always converted on a single thread.
+     */
+    public void setThreads(int nThreads) {
+        this.nThreads = nThreads;
+    }
+    
+    public int getThreads() {
+        return nThreads;
+    }
+    
+    /**
+     * Set to true to run CSV parsing, template conversion and output on separate
+     * threads, linked by bounded queues. Applies even to templates which are not parallel
+     * safe, in which case a single conversion thread is used. Implied by setting
+     * more than one thread.
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+    
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    /**
+     * Set the number of row batches that can be queued between pipeline stages,
+     * 0 to choose a depth based on the number of threads.
+     */
+    public void setQueueDepth(int queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Set the number of rows to read ahead so that data they fetch() can be
+     * retrieved in the background, 0 to fetch only when needed. Only applies
+     * to sequential conversion of parallel safe templates to an output stream.
+     * @see FetchPrefetcher
+     */
+    public void setPrefetch(int window) {
+        this.prefetchWindow = window;
+    }
+
+    /**
+     * Set to false to discard any triples generated by the template's one-off 
+     * preamble processing. The preamble is still run for its other side effects.
+     * Used when a file is converted in several separate chunks. 
+     */
+    public void setEmitPreamble(boolean emitPreamble) {
+        this.emitPreamble = emitPreamble;
+    }
+
+    /**
+     * Set to false to bind every column of each row, even those the template
+     * never references. By default unreferenced columns are skipped
+     * when the template's variable use can be determined.
+     */
+    public void setProjectColumns(boolean projectColumns) {
+        this.projectColumns = projectColumns;
+    }
+
+    /**
+     * Set to true to evaluate template patterns using compiled expressions
+     * rather than by interpreting them with JEXL. Expressions which can't
+     * be compiled are still interpreted. Intended to give the same results
+     * as the interpreter, allowing the two to be compared.
+     */
+    public void setCompiledPatterns(boolean compiledPatterns) {
+        this.compiledPatterns = compiledPatterns;
+    }
+    
+    public boolean isCompiledPatterns() {
+        return compiledPatterns;
+    }
+
+    /**
+     * Set a listener to be told the time taken by each template and pattern
+     * evaluation, and the number of triples each template emits. Null, the
+     * default, disables profiling. See {@link ConversionProfile}.
+     */
+    public void setMetricsListener(MetricsListener metrics) {
+        this.metrics = metrics;
+    }
+    
+    public MetricsListener getMetricsListener() {
+        if (metrics == null) {
+            return null;
+        }
+        return speculative.get() == null ? metrics : null;
+    }
+
     /**
      * Run the conversion process
      * @return true if the conversion succeeded
@@ -177,41 +323,32 @@ public class ConverterProcess {
                 messageReporter.reportError("Data shape does not match template, missing columns: " + ((TemplateBase)template).listMissingColumns(getHeaders()));
                 return false;
             }
+            if (projectColumns && !debug) {
+                applyProjection();
+            }
     
             boolean started = false;
-            while(true) {
-                int lineNumber = dataSource.getLineNumber();
-//                log.debug("Line " + lineNumber);
-                if (lineNumber % BATCH_SIZE == 0) {
-                    messageReporter.report("Processing row " + lineNumber);
+            boolean concurrent = !debug && isConcurrent();
+            if ( (pipelined || nThreads > 1) && concurrent ) {
+                started = new ParallelConverter(this, isParallel() ? nThreads : 1, queueDepth).run();
+            } else if (prefetchWindow > 0 && concurrent && template.isParallelSafe()) {
+                prefetcher = new FetchPrefetcher(this, prefetchWindow, FetchPrefetcher.DEFAULT_THREADS, FetchPrefetcher.DEFAULT_PER_HOST);
+                try {
+                    started = prefetcher.run();
+                } finally {
+                    prefetcher = null;
                 }
-                BindingEnv row = nextRow();
-                if (row != null) {
-                    started = true;
-                    row.put(ROW_OBJECT_NAME, new Row(lineNumber));
-                    try {
-                        Node result = template.convertRow(this, row, lineNumber);
-                        if (result == null) {
-                            if (allowNullRows) {
-                                messageReporter.report("Warning: no templates matched line " + lineNumber, lineNumber);
-                            } else {
-                                messageReporter.reportError("Error: no templates matched line " + lineNumber, lineNumber);
-                            }
-                        }
-                    } catch (Exception e) {
-                        if (!(e instanceof NullResult)) {
-                            messageReporter.reportError("Error: " + e, lineNumber);
-//                            log.error("Error processing line " + lineNumber, e);
-                        } else {
-                            if (allowNullRows) {
-                                messageReporter.report("Warning: no templates matched line " + lineNumber + ", " + e, lineNumber);
-                            } else {
-                                messageReporter.reportError("Error: no templates matched line " + lineNumber + ", " + e, lineNumber);
-                            }
-                        }
+            } else {
+                while(true) {
+                    int lineNumber = dataSource.getLineNumber();
+                    reportProgress(lineNumber);
+                    BindingEnv row = nextRow();
+                    if (row != null) {
+                        started = true;
+                        processRow(row, lineNumber);
+                    } else {
+                        break;
                     }
-                } else {
-                    break;
                 }
             }
             
@@ -222,18 +359,186 @@ public class ConverterProcess {
             
         } catch (IOException e) {
             messageReporter.reportError("Problem reading next line of source");
-        } catch (CsvValidationException csvve) {
-            messageReporter.reportError("The CSV content was invalid: " + csvve.getMessage());
         } finally {
             current.set(null);
+            runFinishActions();
         }
         messageReporter.report("Processed " + (dataSource.getLineNumber() - 1) + " lines");
+        if (metrics != null) {
+            metrics.conversionFinished(this);
+        }
         messageReporter.setState(TaskState.Terminated);
         close();
         
         return messageReporter.succeeded();
     }
     
+    /**
+     * Register an action to run when this process finishes, successfully or
+     * not. Used to release shared resources such as cached mapping sources.
+     */
+    public void onFinish(Runnable action) {
+        synchronized (finishActions) {
+            finishActions.add(action);
+        }
+    }
+    
+    protected void runFinishActions() {
+        while (true) {
+            // Actions may register further actions, e.g. waiting for a prefetched source
+            List<Runnable> actions;
+            synchronized (finishActions) {
+                if (finishActions.isEmpty()) {
+                    return;
+                }
+                actions = new ArrayList<>(finishActions);
+                finishActions.clear();
+            }
+            for (Runnable action : actions) {
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    log.error("Failed to run process finish action", e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Test if rows may be converted off the calling thread. Templates can
+     * navigate the result model while the calling thread adds to it, so
+     * output to the model is always converted serially.
+     */
+    protected boolean isConcurrent() {
+        if ( ! (pipelined || nThreads > 1 || prefetchWindow > 0) ) {
+            return false;
+        }
+        if (outputToModel) {
+            messageReporter.report("Output is to the in-memory result model, converting on a single thread");
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Test if the rows should be converted by a pool of worker threads
+     */
+    protected boolean isParallel() {
+        if (nThreads <= 1) {
+            return false;
+        }
+        if ( ! template.isParallelSafe() ) {
+            messageReporter.report("Template " + template.getName() + " carries state between rows, converting on a single thread");
+            return false;
+        }
+        return true;
+    }
+    
+    protected void reportProgress(int lineNumber) {
+//        log.debug("Line " + lineNumber);
+        if (lineNumber % BATCH_SIZE == 0) {
+            messageReporter.report("Processing row " + lineNumber);
+        }
+    }
+    
+    /**
+     * Convert a single row, reporting rather than propagating any failures 
+     */
+    protected void processRow(BindingEnv row, int lineNumber) {
+        row.put(ROW_OBJECT_NAME, new Row(lineNumber));
+        try {
+            Node result = convertRow(template, row, lineNumber);
+            if (result == null) {
+                if (allowNullRows) {
+                    messageReporter.report("Warning: no templates matched line " + lineNumber, lineNumber);
+                } else {
+                    messageReporter.reportError("Error: no templates matched line " + lineNumber, lineNumber);
+                }
+            }
+        } catch (Exception e) {
+            if (!(e instanceof NullResult)) {
+                messageReporter.reportError("Error: " + e, lineNumber);
+//                log.error("Error processing line " + lineNumber, e);
+            } else {
+                if (allowNullRows) {
+                    messageReporter.report("Warning: no templates matched line " + lineNumber + ", " + e, lineNumber);
+                } else {
+                    messageReporter.reportError("Error: no templates matched line " + lineNumber + ", " + e, lineNumber);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Convert a row using the given template, which may be nested within
+     * the root template. All template invocations go through here so they 
+     * can be profiled.
+     */
+    public Node convertRow(Template template, BindingEnv row, int rowNumber) {
+        if (metrics == null || speculative.get() != null) {
+            return template.convertRow(this, row, rowNumber);
+        }
+        TripleCounter counter = tripleCount.get();
+        if (counter == null) {
+            counter = new TripleCounter();
+            tripleCount.set(counter);
+        }
+        long startCount = counter.count;
+        long start = System.nanoTime();
+        MetricsListener.Outcome outcome = MetricsListener.Outcome.OK;
+        try {
+            Node result = template.convertRow(this, row, rowNumber);
+            if (result == null) {
+                outcome = MetricsListener.Outcome.NULL_RESULT;
+            }
+            return result;
+        } catch (NullResult e) {
+            outcome = MetricsListener.Outcome.NULL_RESULT;
+            throw e;
+        } catch (RuntimeException e) {
+            outcome = MetricsListener.Outcome.ERROR;
+            throw e;
+        } finally {
+            metrics.templateConverted(template.deref(), rowNumber, System.nanoTime() - start, counter.count - startCount, outcome);
+        }
+    }
+    
+    /**
+     * Convert a row with all output and messages discarded, and with fetches
+     * only passed to the prefetcher, to find what data the row will fetch
+     */
+    protected void speculate(BindingEnv row, int rowNumber, ProgressMonitorReporter reporter) {
+        StreamRDF saved = rowOutput.get();
+        speculative.set(reporter);
+        rowOutput.set(DISCARD);
+        try {
+            template.convertRow(this, row, rowNumber);
+        } catch (Exception e) {
+            // Any problems will be reported when the row is converted for real
+        } finally {
+            speculative.remove();
+            if (saved == null) {
+                rowOutput.remove();
+            } else {
+                rowOutput.set(saved);
+            }
+        }
+    }
+
+    /**
+     * Make this the current process for the calling thread, with all
+     * template output going to the given stream rather than the shared output.
+     */
+    protected void attachWorker(StreamRDF out) {
+        current.set(this);
+        rowOutput.set(out);
+    }
+    
+    protected void detachWorker() {
+        rowOutput.remove();
+        current.set(null);
+    }
+    
     /**
      * Evaluate a pattern in the context of this process.
      * Mostly used for testing
@@ -262,13 +567,11 @@ public class ConverterProcess {
     
     public BindingEnv nextRow() throws IOException {
         try {
-            BindingEnv row = dataSource.nextRow();
-            if (row == null) return null;
-            BindingEnv wrapped = new BindingEnv(env);
-            for (Entry<String, Object> entry : row.entrySet()) {
-                wrapped.put(entry.getKey(), ValueFactory.asValue(entry.getValue().toString().trim()));
-            }
-            return wrapped;
+            CSVRecord record = dataSource.nextRecord();
+            if (record == null) return null;
+            RowSchema schema = getRowSchema();
+            int safeLength = Math.min(record.size(), dataSource.getHeaders().length);
+            return new RowEnv(schema, record, safeLength, columnTypes, droppedColumns, env);
         } catch (Exception e) {
             // Most likely problem here is bad data such as an unterminated line
             messageReporter.reportError("Error during CSV reading, unterminated final line? " + e, dataSource.getLineNumber());
@@ -276,6 +579,47 @@ public class ConverterProcess {
         }
     }
     
+    /**
+     * Return the slot allocation for rows of this conversion, the columns followed by the row object.
+     */
+    public RowSchema getRowSchema() {
+        if (rowSchema == null) {
+            String[] headers = dataSource.getHeaders();
+            String[] names = new String[headers.length + 1];
+            System.arraycopy(headers, 0, names, 0, headers.length);
+            names[headers.length] = ROW_OBJECT_NAME;
+            rowSchema = new RowSchema(names);
+            columnTypes = new ColumnTypes(headers.length);
+        }
+        return rowSchema;
+    }
+    
+    /**
+     * Drop the columns which the template never references, so they are neither
+     * copied by the tokenizer nor bound in the rows. Columns named by a
+     * URI (see CompositeTemplate) are found by scanning the row so are always kept.
+     */
+    protected void applyProjection() {
+        Set<String> vars = new HashSet<>();
+        if ( ! template.collectVariables(vars, new HashSet<>()) ) {
+            return;
+        }
+        String[] headers = dataSource.getHeaders();
+        boolean[] keep = new boolean[headers.length];
+        BitSet dropped = new BitSet(headers.length);
+        for (int i = 0; i < headers.length; i++) {
+            keep[i] = vars.contains(headers[i]) || headers[i].startsWith("<");
+            if ( ! keep[i] ) {
+                dropped.set(i);
+            }
+        }
+        if ( ! dropped.isEmpty() ) {
+            log.debug("Skipping unreferenced columns " + dropped + " of " + headers.length);
+            droppedColumns = dropped;
+            dataSource.setProjection(keep);
+        }
+    }
+    
     public BindingEnv peekRow() {
         try {
             String[] row = dataSource.getPeekRow();
@@ -294,7 +638,7 @@ public class ConverterProcess {
         }
     }
     
-    protected void preprocess() throws IOException, CsvValidationException {
+    protected void preprocess() throws IOException {
         Node dataset = NodeFactory.createBlankNode();
         
         Object baseURI = env.get(BASE_OBJECT_NAME);
@@ -310,10 +654,15 @@ public class ConverterProcess {
                 initialEnv = getEnv();
             }
             initialEnv.put(ROW_OBJECT_NAME, new Row(0));
+            if ( ! emitPreamble ) {
+                rowOutput.set( DISCARD );
+            }
             getTemplate().preamble(this, initialEnv);
         } catch (Exception e) {
             messageReporter.reportError("Problem with one-off preprocessing of template: " + e);
             log.error("Problem with one-off preprocessing of template", e);
+        } finally {
+            rowOutput.remove();
         }
 
         // Check for linkedcsv-style preamble
@@ -390,16 +739,94 @@ public class ConverterProcess {
         this.dataContext = dataContext;
     }
 
+    /**
+     * Return the stream to which generated triples should be sent. When
+     * running in parallel this is a buffer local to the worker thread.
+     */
     public StreamRDF getOutputStream() {
-        return outputStream;
+        StreamRDF local = rowOutput.get();
+        StreamRDF out = local != null ? local : outputStream;
+        if (metrics != null) {
+            TripleCounter counter = tripleCount.get();
+            if (counter != null) {
+                return counter.wrap(out);
+            }
+        }
+        return out;
+    }
+    
+    /**
+     * Counts the triples output by a thread while profiling. The counting
+     * wrapper is reused until the thread's output stream changes.
+     */
+    protected static class TripleCounter {
+        long count = 0;
+        StreamRDF wrapped;
+        StreamRDF wrapper;
+        
+        StreamRDF wrap(StreamRDF out) {
+            if (out != wrapped) {
+                wrapped = out;
+                wrapper = new StreamRDFWrapper(out) {
+                    @Override
+                    public void triple(Triple triple) {
+                        count++;
+                        super.triple(triple);
+                    }
+                };
+            }
+            return wrapper;
+        }
+    }
+
+    /**
+     * Send the enrichment triples for a value matched in a mapping source to
+     * the output, unless they have already been output by this process
+     */
+    public void enrich(MapSource source, Node match) {
+        StreamRDF local = rowOutput.get();
+        if (local == DISCARD) {
+            return;
+        }
+        Set<Node> seen = enriched.computeIfAbsent(source, s -> ConcurrentHashMap.newKeySet());
+        if (local instanceof ParallelConverter.BatchOutput) {
+            ((ParallelConverter.BatchOutput) local).once(seen, match, out -> source.enrich(out, match));
+        } else if ( seen.add(match) ) {
+            source.enrich(getOutputStream(), match);
+        }
+    }
+
+    /**
+     * Send a fixed description of a resource, such as the reference time
+     * triples for a date, to the output unless it has already been output
+     * by this process
+     */
+    public void describeOnce(Node resource, List<Triple> description) {
+        StreamRDF local = rowOutput.get();
+        if (local == DISCARD) {
+            return;
+        }
+        if (local instanceof ParallelConverter.BatchOutput) {
+            ((ParallelConverter.BatchOutput) local).once(described, resource, out -> description.forEach(out::triple));
+        } else if ( described.add(resource) ) {
+            StreamRDF out = getOutputStream();
+            for (Triple t : description) {
+                out.triple(t);
+            }
+        }
     }
 
     public void setOutputStream(StreamRDF outputStream) {
         this.outputStream = outputStream;
+        this.outputToModel = false;
     }
 
     public ProgressMonitorReporter getMessageReporter() {
-        return messageReporter;
+        if (prefetchWindow <= 0) {
+            return messageReporter;
+        }
+        ProgressMonitorReporter reporter = speculative.get();
+        return reporter != null ? reporter : messageReporter;
     }
 
     public void setMessageReporter(ProgressMonitorReporter messageReporter) {
@@ -446,26 +873,50 @@ public class ConverterProcess {
     public void setModel(Model model) {
         result = model;
         outputStream = StreamRDFLib.graph( result.getGraph() );
+        outputToModel = true;
     }
     
 
+    /**
+     * Set the disk cache used for models fetched over http, or null to always fetch them
+     */
+    public void setHttpCache(HttpFetchCache httpCache) {
+        this.httpCache = httpCache;
+    }
+
+    public HttpFetchCache getHttpCache() {
+        return httpCache;
+    }
+
     /**
      * Fetch a remote (possibly cached) model from the given URI.
      * Return null if no data is found
      */
     
     public Model fetchModel(String uri) {
-        Model model = (Model) fetchCache.get(uri);
+        Model model;
+        synchronized (fetchCache) {
+            model = (Model) fetchCache.get(uri);
+        }
         if (model == null) {
+            FetchPrefetcher pf = prefetcher;
+            if (speculative.get() != null) {
+                if (pf != null) {
+                    pf.prefetch(uri);
+                }
+                throw new NullResult("Prefetching " + uri);
+            }
             try {
                 log.info("fetching " + uri);  // TODO: TEMP
                 long start = System.currentTimeMillis();
-                model = RDFDataMgr.loadModel( uri );
+                model = (pf != null && pf.isPending(uri)) ? pf.take(uri) : loadModel(uri);
                 log.info("Fetched in " + NameUtils.formatDuration(System.currentTimeMillis() - start));
                 if (model == null || model.isEmpty()) {
                     getMessageReporter().report("Warning: no data found at " + uri);
                 } else {
-                    fetchCache.put(uri, model);
+                    synchronized (fetchCache) {
+                        fetchCache.put(uri, model);
+                    }
                 }
             } catch (Exception e) {
                 getMessageReporter().report("Warning: exception fetching " + uri + ", " + e);
@@ -474,4 +925,14 @@ public class ConverterProcess {
         return model;
     }
 
+    /**
+     * Retrieve the model at a URI, through the http cache if there is one
+     */
+    protected Model loadModel(String uri) throws IOException {
+        if (httpCache != null && HttpFetchCache.handles(uri)) {
+            return httpCache.fetch(uri);
+        }
+        return RDFDataMgr.loadModel( uri );
+    }
+
 }
@@ -46,6 +46,10 @@ public class ConverterService extends ComponentBase {
     
     protected DataContext dc;
     protected boolean silent = false;
+    protected int threads = 1;
+    protected boolean compiledPatterns = false;
+    protected boolean profile = false;
+    protected int prefetch = 0;
     protected TemplateMonitor monitor;
     
     public ConverterService(String defaultPrefixes) {
@@ -129,6 +133,41 @@ public class ConverterService extends ComponentBase {
         this.silent = silent;
     }
     
+    /**
+     * Set the number of threads each conversion process should use to convert rows.
+     * Conversions into an in-memory model, as by simpleConvert, use a single thread.
+     * @see ConverterProcess#setThreads(int)
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+    
+    /**
+     * Set to true to evaluate template patterns using compiled expressions
+     * @see ConverterProcess#setCompiledPatterns(boolean)
+     */
+    public void setCompiledPatterns(boolean compiledPatterns) {
+        this.compiledPatterns = compiledPatterns;
+    }
+    
+    /**
+     * Set to true to profile each conversion, reporting the time spent in
+     * each template and pattern once the conversion completes
+     * @see ConversionProfile
+     */
+    public void setProfile(boolean profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Set the number of rows to read ahead so that data they fetch() can be
+     * retrieved in the background, 0 to fetch only when needed. Not used by
+     * conversions into an in-memory model.
+     */
+    public void setPrefetch(int prefetch) {
+        this.prefetch = prefetch;
+    }
+    
     /**
      * Simple invocation. Load template and data from a file, run process
      * and return memory model containing results or null if there was a problem.
@@ -155,6 +194,12 @@ public class ConverterService extends ComponentBase {
         process.setTemplate( template );
         process.setMessageReporter( reporter );
         process.setAllowNullRows(allowNullRows);
+        process.setThreads(threads);
+        process.setCompiledPatterns(compiledPatterns);
+        process.setPrefetch(prefetch);
+        if (profile) {
+            process.setMetricsListener( new ConversionProfile() );
+        }
         boolean ok = process.process();
         
         return ok ?  process.getModel() : null;
@@ -202,6 +247,12 @@ public class ConverterService extends ComponentBase {
             throw new EpiException("Template not found: " + templateName);
         }
         process.setTemplate( template );
+        process.setThreads(threads);
+        process.setCompiledPatterns(compiledPatterns);
+        process.setPrefetch(prefetch);
+        if (profile) {
+            process.setMetricsListener( new ConversionProfile() );
+        }
         return process;
     }
 }
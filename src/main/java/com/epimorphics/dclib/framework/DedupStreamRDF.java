@@ -0,0 +1,230 @@
+/******************************************************************
+ * File:        DedupStreamRDF.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+
+import com.epimorphics.util.EpiException;
+
+/**
+ * Stream stage which drops repeated triples, for use in front of a streaming
+ * writer. When converting to a model repeats are removed by the model itself,
+ * when streaming each repeat would otherwise be written out.
+ * <p>
+ * What counts as a repeat depends on the set used to remember triples already seen:
+ * </p>
+ * <ul>
+ *   <li>lru - exact set of the most recently seen triples, older repeats are written again</li>
+ *   <li>exact - every triple, held in memory up to a limit and then spilled to disk,
+ *   a small index of the spilled triples is kept in memory (see {@link SpillingTripleSet})</li>
+ *   <li>bloom - Bloom filter, fixed memory allocated up front but a small fraction of new triples are wrongly dropped,
+ *   the default of 10 million triples at 0.001 takes about 18MB</li>
+ * </ul>
+ */
+public class DedupStreamRDF extends StreamRDFWrapper {
+    protected final TripleSet seen;
+    protected long dropped = 0;
+
+    /**
+     * Records the triples seen so far
+     */
+    public interface TripleSet {
+        /**
+         * Add a triple, returning false if it has (probably) been seen before
+         */
+        public boolean add(Triple triple);
+
+        /**
+         * Release any resources, such as temporary files
+         */
+        public default void close() {}
+    }
+
+    public DedupStreamRDF(StreamRDF out, TripleSet seen) {
+        super(out);
+        this.seen = seen;
+    }
+
+    /**
+     * Create a dedup stage from a specification of the form "lru:size",
+     * "exact:maxInMemory" or "bloom:expectedTriples:falsePositiveRate"
+     */
+    public static DedupStreamRDF fromSpec(StreamRDF out, String spec) {
+        String[] parts = spec.split(":");
+        try {
+            switch (parts[0]) {
+            case "lru":
+                return new DedupStreamRDF(out, new LRUTripleSet( parts.length > 1 ? Integer.parseInt(parts[1]) : 1_000_000 ));
+            case "exact":
+                return new DedupStreamRDF(out, new SpillingTripleSet( new File(System.getProperty("java.io.tmpdir")),
+                        parts.length > 1 ? Integer.parseInt(parts[1]) : 1_000_000 ));
+            case "bloom":
+                return new DedupStreamRDF(out, new BloomTripleSet( parts.length > 1 ? Long.parseLong(parts[1]) : 10_000_000L,
+                        parts.length > 2 ? Double.parseDouble(parts[2]) : 0.001 ));
+            default:
+                break;
+            }
+        } catch (NumberFormatException e) {
+            // fall through to report the bad spec
+        }
+        throw new EpiException("Bad dedup specification: " + spec + ", expected lru:size, exact:maxInMemory or bloom:expected:fpp");
+    }
+
+    @Override
+    public synchronized void triple(Triple triple) {
+        if (seen.add(triple)) {
+            super.triple(triple);
+        } else {
+            dropped++;
+        }
+    }
+
+    @Override
+    public void finish() {
+        super.finish();
+        seen.close();
+    }
+
+    /**
+     * Return the number of triples dropped as repeats
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Return a string key identifying a triple
+     */
+    public static String key(Triple triple) {
+        return NodeFmtLib.strNodesNT(triple.getSubject(), triple.getPredicate(), triple.getObject());
+    }
+
+    /**
+     * Remembers a bounded number of the most recently seen triples
+     */
+    public static class LRUTripleSet implements TripleSet {
+        protected final Map<Triple, Boolean> recent;
+
+        public LRUTripleSet(int capacity) {
+            recent = new LinkedHashMap<Triple, Boolean>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Triple, Boolean> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        @Override
+        public boolean add(Triple triple) {
+            return recent.put(triple, Boolean.TRUE) == null;
+        }
+    }
+
+    /**
+     * Remembers triples in a Bloom filter sized for an expected number of
+     * triples and false positive rate
+     */
+    public static class BloomTripleSet implements TripleSet {
+        protected final Bloom bloom;
+
+        public BloomTripleSet(long expected, double fpp) {
+            bloom = new Bloom(expected, fpp);
+        }
+
+        @Override
+        public boolean add(Triple triple) {
+            return bloom.add( key(triple) );
+        }
+    }
+
+    /**
+     * Bloom filter over strings
+     */
+    public static class Bloom {
+        protected final long[] bits;
+        protected final long nbits;
+        protected final int k;
+
+        public Bloom(long expected, double fpp) {
+            double m = -Math.max(expected, 1) * Math.log(fpp) / (Math.log(2) * Math.log(2));
+            long words = Math.min( Math.max( (long) Math.ceil(m / 64), 1 ), Integer.MAX_VALUE - 8 );
+            bits = new long[(int) words];
+            nbits = words * 64;
+            k = (int) Math.max(1, Math.min(30, Math.round( (double) nbits / Math.max(expected, 1) * Math.log(2) )));
+        }
+
+        /**
+         * Add a key, returning false if it may already have been added
+         */
+        public boolean add(CharSequence key) {
+            long h = fnv(key);
+            long h1 = mix(h);
+            long h2 = mix(h + 0x9e3779b97f4a7c15L) | 1;
+            boolean added = false;
+            for (int i = 0; i < k; i++) {
+                long bit = Math.floorMod(h1 + i * h2, nbits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                if ( (bits[word] & mask) == 0 ) {
+                    bits[word] |= mask;
+                    added = true;
+                }
+            }
+            return added;
+        }
+
+        /**
+         * Test if a key may have been added
+         */
+        public boolean mightContain(CharSequence key) {
+            long h = fnv(key);
+            long h1 = mix(h);
+            long h2 = mix(h + 0x9e3779b97f4a7c15L) | 1;
+            for (int i = 0; i < k; i++) {
+                long bit = Math.floorMod(h1 + i * h2, nbits);
+                if ( (bits[(int) (bit >>> 6)] & (1L << bit)) == 0 ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 64 bit hash of a key, as used to index the filter
+         */
+        public static long hash(CharSequence key) {
+            return mix( fnv(key) );
+        }
+
+        private static long fnv(CharSequence key) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                h ^= key.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return h;
+        }
+
+        // splitmix64 finalizer
+        private static long mix(long h) {
+            h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+            h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+            return h ^ (h >>> 31);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/******************************************************************
+ * File:        FetchPrefetcher.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.jena.rdf.model.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epimorphics.dclib.values.Row;
+import com.epimorphics.tasks.SimpleProgressMonitor;
+
+/**
+ * Converts rows in order on the calling thread while fetching, in the
+ * background, the remote data that rows further ahead will need.
+ * <p>
+ * Each row read is first converted speculatively, with output and messages
+ * discarded and with fetch() calls only noting the URI to fetch, and is
+ * then held in a window until the rows before it have been converted.
+ * The noted URIs are fetched concurrently, with a limit on the requests
+ * to any one host, so by the time a row is converted its data is usually
+ * already available. Only used for parallel safe templates, for which
+ * converting a row an extra time has no effect on other rows.
+ * </p>
+ */
+public class FetchPrefetcher {
+    static final Logger log = LoggerFactory.getLogger( FetchPrefetcher.class );
+
+    public static final int DEFAULT_THREADS = 16;
+    public static final int DEFAULT_PER_HOST = 4;
+
+    protected final ConverterProcess proc;
+    protected final int window;
+    protected final int perHost;
+    protected final ExecutorService pool;
+    protected final Map<String, Future<Model>> pending = new ConcurrentHashMap<>();
+    protected final Map<String, Semaphore> hosts = new ConcurrentHashMap<>();
+
+    public FetchPrefetcher(ConverterProcess proc, int window, int threads, int perHost) {
+        this.proc = proc;
+        this.window = window;
+        this.perHost = perHost;
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "dclib-prefetch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Convert all rows of the source, returns true if there were any rows
+     */
+    public boolean run() throws IOException {
+        Deque<BindingEnv> rows = new ArrayDeque<>(window);
+        Deque<Integer> lineNumbers = new ArrayDeque<>(window);
+        boolean exhausted = false;
+        boolean started = false;
+        try {
+            while (true) {
+                while (!exhausted && rows.size() < window) {
+                    int lineNumber = proc.dataSource.getLineNumber();
+                    BindingEnv row = proc.nextRow();
+                    if (row == null) {
+                        exhausted = true;
+                    } else {
+                        scan(row, lineNumber);
+                        rows.add(row);
+                        lineNumbers.add(lineNumber);
+                    }
+                }
+                if (rows.isEmpty()) {
+                    return started;
+                }
+                started = true;
+                int lineNumber = lineNumbers.poll();
+                proc.reportProgress(lineNumber);
+                proc.processRow(rows.poll(), lineNumber);
+            }
+        } finally {
+            pool.shutdownNow();
+            pending.clear();
+        }
+    }
+
+    /**
+     * Speculatively convert a row to find the URIs it will fetch
+     */
+    protected void scan(BindingEnv row, int lineNumber) {
+        BindingEnv env = new BindingEnv(row);
+        env.put(ConverterProcess.ROW_OBJECT_NAME, new Row(lineNumber));
+        proc.speculate(env, lineNumber, new SimpleProgressMonitor());
+    }
+
+    /**
+     * Start fetching a URI, if it is not already being fetched
+     */
+    public void prefetch(String uri) {
+        if ( !pending.containsKey(uri) && !pool.isShutdown() ) {
+            pending.computeIfAbsent(uri, u -> pool.submit( () -> fetch(u) ));
+        }
+    }
+
+    /**
+     * Return the result of prefetching a URI, waiting if need be.
+     * Returns null if the URI has not been prefetched.
+     */
+    public Model take(String uri) throws IOException {
+        Future<Model> future = pending.remove(uri);
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for " + uri, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to fetch " + uri, e.getCause());
+        }
+    }
+
+    /**
+     * Test if a URI has been noted for fetching
+     */
+    public boolean isPending(String uri) {
+        return pending.containsKey(uri);
+    }
+
+    protected Model fetch(String uri) throws IOException, InterruptedException {
+        Semaphore limit = hosts.computeIfAbsent(host(uri), h -> new Semaphore(perHost));
+        limit.acquire();
+        try {
+            long start = System.currentTimeMillis();
+            Model model = proc.loadModel(uri);
+            log.debug("Prefetched " + uri + " in " + (System.currentTimeMillis() - start) + "ms");
+            return model;
+        } finally {
+            limit.release();
+        }
+    }
+
+    private static String host(String uri) {
+        try {
+            String host = URI.create(uri).getHost();
+            return host == null ? "" : host;
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,353 @@
+/******************************************************************
+ * File:        HttpFetchCache.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.atlas.web.ContentType;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RDFParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epimorphics.util.EpiException;
+
+/**
+ * Disk based cache of RDF fetched over HTTP, shared by all conversions
+ * which use the same cache directory, including across runs.
+ * <p>
+ * Each fetched model is stored in binary RDF (RDF Thrift) along with the
+ * ETag and Last-Modified headers of the response. The first fetch of a URI
+ * by a cache instance revalidates the stored copy with a conditional GET,
+ * later fetches use the stored copy directly. If the server can't be reached
+ * a stored copy is used regardless. In offline mode no requests are made
+ * and only stored copies are available.
+ * </p>
+ * <p>
+ * Entries which have not been used for longer than the maximum age are
+ * removed, as are the least recently used entries once the total size of
+ * the cache exceeds the maximum size.
+ * </p>
+ */
+public class HttpFetchCache {
+    static final Logger log = LoggerFactory.getLogger( HttpFetchCache.class );
+
+    public static final String DATA_EXTENSION = ".rt";
+    public static final String META_EXTENSION = ".meta";
+
+    protected static final String URI_PROP = "uri";
+    protected static final String ETAG_PROP = "etag";
+    protected static final String LAST_MODIFIED_PROP = "lastModified";
+
+    protected static volatile HttpFetchCache defaultCache;
+
+    protected final File dir;
+    protected long maxSize = 1L << 30;
+    protected long maxAge = TimeUnit.DAYS.toMillis(30);
+    protected volatile boolean offline = false;
+    protected Duration timeout = Duration.ofSeconds(60);
+    protected final Set<String> validated = ConcurrentHashMap.newKeySet();
+    protected long storedSinceCleanup = 0;
+
+    protected final HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout( Duration.ofSeconds(30) )
+            .build();
+
+    /**
+     * Set the cache used by conversion processes which aren't given one explicitly, may be null
+     */
+    public static void setDefault(HttpFetchCache cache) {
+        defaultCache = cache;
+    }
+
+    public static HttpFetchCache getDefault() {
+        return defaultCache;
+    }
+
+    public HttpFetchCache(File dir) {
+        this.dir = dir;
+        if ( !dir.isDirectory() && !dir.mkdirs() ) {
+            throw new EpiException("Can't create fetch cache directory " + dir);
+        }
+    }
+
+    /**
+     * Set the total size, in bytes, of stored models to retain
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Set the time after which unused entries are removed
+     */
+    public void setMaxAge(Duration maxAge) {
+        this.maxAge = maxAge.toMillis();
+    }
+
+    /**
+     * In offline mode only previously stored models are returned
+     */
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * Set the time allowed for each request
+     */
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Test if a URI is one this cache can fetch
+     */
+    public static boolean handles(String uri) {
+        return uri.startsWith("http://") || uri.startsWith("https://");
+    }
+
+    /**
+     * Return the model at the given URI, from the cache if possible.
+     * Returns null if the URI has no data, or is not available offline.
+     */
+    public Model fetch(String uri) throws IOException {
+        String key = keyFor(uri);
+        File data = new File(dir, key + DATA_EXTENSION);
+        File meta = new File(dir, key + META_EXTENSION);
+        Properties props = readMeta(meta, uri);
+        boolean stored = props != null && data.exists();
+
+        if (offline || (stored && validated.contains(uri))) {
+            return stored ? load(data) : null;
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder( URI.create(uri) )
+                .timeout(timeout)
+                .header("Accept", LocatorHTTP.acceptHeader)
+                .GET();
+        if (stored) {
+            String etag = props.getProperty(ETAG_PROP);
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            String lastModified = props.getProperty(LAST_MODIFIED_PROP);
+            if (lastModified != null) {
+                request.header("If-Modified-Since", lastModified);
+            }
+        }
+
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            if (stored) {
+                log.warn("Failed to revalidate " + uri + ", using cached copy: " + e);
+                validated.add(uri);
+                return load(data);
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted fetching " + uri, e);
+        }
+
+        try (InputStream body = response.body()) {
+            int status = response.statusCode();
+            if (status == 304 && stored) {
+                validated.add(uri);
+                return load(data);
+            }
+            if (status == 404 || status == 410) {
+                data.delete();
+                meta.delete();
+                return null;
+            }
+            if (status != 200) {
+                if (stored) {
+                    log.warn("Failed to revalidate " + uri + ", status " + status + ", using cached copy");
+                    validated.add(uri);
+                    return load(data);
+                }
+                throw new IOException("Fetch of " + uri + " failed with status " + status);
+            }
+            Model model = ModelFactory.createDefaultModel();
+            String contentType = response.headers().firstValue("Content-Type").orElse(null);
+            Lang lang = contentType == null ? null : RDFLanguages.contentTypeToLang( ContentType.create(contentType).getContentTypeStr() );
+            if (lang == null) {
+                lang = RDFLanguages.resourceNameToLang(uri, Lang.TURTLE);
+            }
+            RDFParser.create().source(body).lang(lang).base(uri).parse(model);
+
+            Properties newProps = new Properties();
+            newProps.setProperty(URI_PROP, uri);
+            response.headers().firstValue("ETag").ifPresent(v -> newProps.setProperty(ETAG_PROP, v));
+            response.headers().firstValue("Last-Modified").ifPresent(v -> newProps.setProperty(LAST_MODIFIED_PROP, v));
+            store(data, meta, model, newProps);
+            validated.add(uri);
+            return model;
+        }
+    }
+
+    /**
+     * Remove entries which are too old, then the least recently used
+     * entries until the cache is within its maximum size
+     */
+    public synchronized void cleanup() {
+        storedSinceCleanup = 0;
+        File[] files = dir.listFiles( (d, name) -> name.endsWith(DATA_EXTENSION) );
+        if (files == null) return;
+        long now = System.currentTimeMillis();
+        long total = 0;
+        List<File> live = new ArrayList<>();
+        for (File file : files) {
+            if (now - file.lastModified() > maxAge) {
+                remove(file);
+            } else {
+                live.add(file);
+                total += file.length();
+            }
+        }
+        live.sort( Comparator.comparingLong(File::lastModified) );
+        for (int i = 0; i < live.size() && total > maxSize; i++) {
+            total -= live.get(i).length();
+            remove( live.get(i) );
+        }
+    }
+
+    /**
+     * Remove all stored entries
+     */
+    public void clear() {
+        File[] files = dir.listFiles( (d, name) -> name.endsWith(DATA_EXTENSION) );
+        if (files != null) {
+            for (File file : files) {
+                remove(file);
+            }
+        }
+        validated.clear();
+    }
+
+    protected void remove(File data) {
+        String name = data.getName();
+        data.delete();
+        new File(dir, name.substring(0, name.length() - DATA_EXTENSION.length()) + META_EXTENSION).delete();
+    }
+
+    protected Model load(File data) throws IOException {
+        Model model = ModelFactory.createDefaultModel();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(data))) {
+            RDFDataMgr.read(model, in, Lang.RDFTHRIFT);
+        }
+        data.setLastModified( System.currentTimeMillis() );   // Recently used
+        return model;
+    }
+
+    protected void store(File data, File meta, Model model, Properties props) {
+        File tempData = null;
+        File tempMeta = null;
+        try {
+            tempData = File.createTempFile(data.getName(), ".tmp", dir);
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempData))) {
+                RDFDataMgr.write(out, model, RDFFormat.RDF_THRIFT);
+            }
+            tempMeta = File.createTempFile(meta.getName(), ".tmp", dir);
+            try (OutputStream out = new FileOutputStream(tempMeta)) {
+                props.store(out, null);
+            }
+            move(tempData, data);
+            move(tempMeta, meta);
+        } catch (Exception e) {
+            log.warn("Failed to store fetched model " + props.getProperty(URI_PROP) + ": " + e);
+            if (tempData != null) tempData.delete();
+            if (tempMeta != null) tempMeta.delete();
+            return;
+        }
+        boolean clean;
+        synchronized (this) {
+            storedSinceCleanup += data.length();
+            clean = storedSinceCleanup > maxSize / 16;
+        }
+        if (clean) {
+            cleanup();
+        }
+    }
+
+    private static void move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Read the stored headers for a URI, null if there are none
+     * or they belong to a different URI with the same hash
+     */
+    protected Properties readMeta(File meta, String uri) {
+        if ( !meta.exists() ) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream in = new FileInputStream(meta)) {
+            props.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+        return uri.equals( props.getProperty(URI_PROP) ) ? props : null;
+    }
+
+    protected static String keyFor(String uri) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest( uri.getBytes(StandardCharsets.UTF_8) );
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                key.append( String.format("%02x", digest[i]) );
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new EpiException(e);
+        }
+    }
+}
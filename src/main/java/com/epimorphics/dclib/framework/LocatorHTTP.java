@@ -35,7 +35,7 @@ import org.slf4j.LoggerFactory ;
 public class LocatorHTTP extends org.apache.jena.riot.system.stream.LocatorURL {
     private static Logger         log         = LoggerFactory.getLogger(LocatorHTTP.class) ;
     private static final String[] schemeNames = {"http", "https"} ;
-    private static final String   acceptHeader = "text/turtle,application/n-triples;q=0.9,application/ld+json;q=0.8,application/rdf+xml;q=0.7";
+    static final String           acceptHeader = "text/turtle,application/n-triples;q=0.9,application/ld+json;q=0.8,application/rdf+xml;q=0.7";
 
     public LocatorHTTP() {
         super(schemeNames) ;
@@ -0,0 +1,44 @@
+/******************************************************************
+ * File:        MetricsListener.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+/**
+ * Receives timing information on each template and pattern evaluation
+ * during a conversion. Set on a ConverterProcess to enable profiling, when
+ * no listener is set nothing is timed. Calls may be made concurrently from
+ * several threads when rows are converted in parallel.
+ *
+ * @see ConversionProfile
+ */
+public interface MetricsListener {
+
+    /**
+     * How an evaluation finished
+     */
+    public enum Outcome { OK, NULL_RESULT, ERROR }
+
+    /**
+     * Called after a template has converted, or failed to convert, a row
+     * @param template the template, with any references resolved
+     * @param nanos elapsed time including any templates it called
+     * @param triples number of triples emitted, including by any templates it called
+     */
+    public void templateConverted(Template template, int rowNumber, long nanos, long triples, Outcome outcome);
+
+    /**
+     * Called after a pattern has been evaluated
+     */
+    public void patternEvaluated(Pattern pattern, int rowNumber, long nanos, Outcome outcome);
+
+    /**
+     * Called at the end of a conversion process
+     */
+    public default void conversionFinished(ConverterProcess process) {
+    }
+}
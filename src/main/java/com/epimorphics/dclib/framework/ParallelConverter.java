@@ -0,0 +1,287 @@
+/******************************************************************
+ * File:        ParallelConverter.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.lang.CollectorStreamTriples;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFBase;
+
+import com.epimorphics.util.EpiException;
+
+/**
+ * Runs the rows of a ConverterProcess through a three stage pipeline.
+ * <ul>
+ *   <li>a reader thread parses CSV rows into batches,</li>
+ *   <li>a pool of converter threads runs the template over each batch into a private buffer,</li>
+ *   <li>the calling thread writes the buffers to the real output stream in the original row order.</li>
+ * </ul>
+ * The stages are linked by bounded queues so a slow stage applies back-pressure
+ * to the earlier ones. The output is identical to a serial run, other than the
+ * interleaving of progress messages.
+ * <p>
+ * With a single converter thread batches are converted strictly in sequence, which
+ * is safe for templates that carry state between rows. Multiple converter threads
+ * should only be used for templates which report themselves as parallel safe.
+ * </p>
+ */
+public class ParallelConverter {
+    public static final int DEFAULT_BATCH_SIZE = 200;
+
+    protected ConverterProcess proc;
+    protected int nThreads;
+    protected int queueDepth;
+    protected int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * @param proc the process whose rows are to be converted
+     * @param nThreads the number of converter threads
+     * @param queueDepth the number of batches which can be queued between each stage, 
+     * if zero a depth is chosen based on the number of threads
+     */
+    public ParallelConverter(ConverterProcess proc, int nThreads, int queueDepth) {
+        this.proc = proc;
+        this.nThreads = nThreads;
+        this.queueDepth = queueDepth > 0 ? queueDepth : Math.max(2, 2 * nThreads);
+    }
+
+    public ParallelConverter(ConverterProcess proc, int nThreads) {
+        this(proc, nThreads, 0);
+    }
+
+    /**
+     * Set the number of rows passed between stages in one go
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Convert all remaining rows of the process's data source.
+     * @return true if at least one row was read
+     */
+    public boolean run() throws IOException {
+        BlockingQueue<Batch> parsed = new ArrayBlockingQueue<>(queueDepth);
+        Reader reader = new Reader(parsed);
+        Thread readerThread = new Thread(reader, "dclib-reader");
+        readerThread.setDaemon(true);
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+        Deque<Future<BatchOutput>> pending = new ArrayDeque<>();
+        boolean started = false;
+        readerThread.start();
+        try {
+            while (true) {
+                Batch batch = parsed.take();
+                if (batch.isEmpty()) {
+                    break;
+                }
+                started = true;
+                pending.add( pool.submit( () -> batch.convert() ) );
+                while (pending.size() >= queueDepth) {
+                    emit( pending.removeFirst() );
+                }
+            }
+            while ( ! pending.isEmpty() ) {
+                emit( pending.removeFirst() );
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EpiException("Interrupted during conversion");
+        } finally {
+            readerThread.interrupt();
+            for (Future<BatchOutput> f : pending) {
+                f.cancel(true);
+            }
+            pool.shutdownNow();
+        }
+        Throwable failure = reader.failure;
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            proc.messageReporter.reportError("Error during CSV reading: " + failure, proc.dataSource.getLineNumber());
+        }
+        return started;
+    }
+
+    protected void emit(Future<BatchOutput> future) throws InterruptedException {
+        BatchOutput output;
+        try {
+            output = future.get();
+        } catch (ExecutionException e) {
+            throw new EpiException("Conversion failed", e.getCause());
+        }
+        StreamRDF out = proc.getOutputStream();
+        for (Object item : output.items) {
+            if (item instanceof Triple) {
+                out.triple( (Triple) item );
+            } else {
+                // Batches are emitted in row order so the first to claim a key here is the one a serial run would output
+                Once once = (Once) item;
+                if ( once.seen.add(once.key) ) {
+                    for (Triple t : once.triples) {
+                        out.triple(t);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse stage, reads rows until the source is exhausted and then
+     * signals the end with an empty batch. The end is signalled even if
+     * reading fails, the failure is left for the consumer to report.
+     */
+    protected class Reader implements Runnable {
+        BlockingQueue<Batch> queue;
+        volatile Throwable failure;
+
+        Reader(BlockingQueue<Batch> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void run() {
+            proc.attachWorker(null);
+            try {
+                while (true) {
+                    Batch batch = new Batch();
+                    while (batch.size() < batchSize) {
+                        int lineNumber = proc.dataSource.getLineNumber();
+                        proc.reportProgress(lineNumber);
+                        BindingEnv row = proc.nextRow();
+                        if (row == null) {
+                            break;
+                        }
+                        batch.add(row, lineNumber);
+                    }
+                    if (batch.size() < batchSize) {
+                        if ( ! batch.isEmpty() ) {
+                            queue.put(batch);
+                        }
+                        return;
+                    }
+                    queue.put(batch);
+                }
+            } catch (InterruptedException e) {
+                // Consumer has given up, just stop
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                proc.detachWorker();
+                if ( ! Thread.currentThread().isInterrupted() ) {
+                    try {
+                        queue.put( new Batch() );
+                    } catch (InterruptedException e) {
+                        // Consumer has given up
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A run of consecutive rows to be converted by a single worker.
+     */
+    protected class Batch {
+        List<BindingEnv> rows = new ArrayList<>(batchSize);
+        List<Integer> lineNumbers = new ArrayList<>(batchSize);
+
+        void add(BindingEnv row, int lineNumber) {
+            rows.add(row);
+            lineNumbers.add(lineNumber);
+        }
+
+        int size() {
+            return rows.size();
+        }
+
+        boolean isEmpty() {
+            return rows.isEmpty();
+        }
+
+        BatchOutput convert() {
+            BatchOutput buffer = new BatchOutput();
+            proc.attachWorker(buffer);
+            try {
+                for (int i = 0; i < rows.size(); i++) {
+                    proc.processRow(rows.get(i), lineNumbers.get(i));
+                }
+            } finally {
+                proc.detachWorker();
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Output buffer for a converted batch. As well as plain triples it holds
+     * groups of triples which should only be output once per process, such as
+     * mapping source enrichments. Which row is the first to need a group can
+     * only be decided in row order, so the groups are tagged with their key
+     * and left to the emit stage to check against the process.
+     */
+    protected static class BatchOutput extends StreamRDFBase {
+        List<Object> items = new ArrayList<>();
+        Map<Set<Node>, Set<Node>> claimed = new IdentityHashMap<>();
+
+        @Override
+        public void triple(Triple triple) {
+            items.add(triple);
+        }
+
+        /**
+         * Buffer the triples generated by describe unless this batch, or
+         * an already emitted batch, has output them for the given key.
+         * @param seen the process's record of keys already output
+         * @param key the key for this group of triples
+         * @param describe generates the triples into the given stream
+         */
+        public void once(Set<Node> seen, Node key, Consumer<StreamRDF> describe) {
+            if ( seen.contains(key) || ! claimed.computeIfAbsent(seen, s -> new HashSet<>()).add(key) ) {
+                return;
+            }
+            CollectorStreamTriples triples = new CollectorStreamTriples();
+            describe.accept(triples);
+            items.add( new Once(seen, key, triples.getCollected()) );
+        }
+    }
+
+    protected static class Once {
+        final Set<Node> seen;
+        final Node key;
+        final List<Triple> triples;
+
+        Once(Set<Node> seen, Node key, List<Triple> triples) {
+            this.seen = seen;
+            this.key = key;
+            this.triples = triples;
+        }
+    }
+}
@@ -11,6 +11,7 @@ package com.epimorphics.dclib.framework;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import jakarta.ws.rs.NotSupportedException;
 
@@ -50,6 +51,9 @@ public class Pattern {
     protected boolean isConstant;
     
     protected List<Object> components = new ArrayList<>();
+    protected volatile CompiledExpression[] compiled;   // Compiled forms of the components, built on first use
+    
+    static final Object FUNCTIONS = GlobalFunctions.getFunctions().get(null);
     
     static {
         engine.setStrict(false);
@@ -97,11 +101,35 @@ public class Pattern {
      * Interpret the pattern in some binding environment of variables.
      */
     public Object evaluate(BindingEnv env, ConverterProcess proc, int rowNumber) {
+        MetricsListener metrics = (proc == null || isConstant) ? null : proc.getMetricsListener();
+        if (metrics == null) {
+            return doEvaluate(env, proc, rowNumber);
+        }
+        long start = System.nanoTime();
+        MetricsListener.Outcome outcome = MetricsListener.Outcome.OK;
+        try {
+            Object result = doEvaluate(env, proc, rowNumber);
+            if (result == null) {
+                outcome = MetricsListener.Outcome.NULL_RESULT;
+            }
+            return result;
+        } catch (NullResult e) {
+            outcome = MetricsListener.Outcome.NULL_RESULT;
+            throw e;
+        } catch (RuntimeException e) {
+            outcome = MetricsListener.Outcome.ERROR;
+            throw e;
+        } finally {
+            metrics.patternEvaluated(this, rowNumber, System.nanoTime() - start, outcome);
+        }
+    }
+
+    private Object doEvaluate(BindingEnv env, ConverterProcess proc, int rowNumber) {
         if (isConstant) {
             return wrapResult( components.get(0) );
             
         } else if (components.size() == 1) {
-            Object result = evaluateComponent(0, env);
+            Object result = evaluateComponent(0, env, proc);
             checkForError(result, proc, rowNumber);
             return wrapResult(result);
 
@@ -112,7 +140,7 @@ public class Pattern {
             StringBuilder ansString = new StringBuilder();
             Value ans = null;
             for (int i = 0; i < len; i++) {
-                Object result = evaluateComponent(i, env);
+                Object result = evaluateComponent(i, env, proc);
                 checkForError(result, proc, rowNumber);
                 if (result instanceof Value && ((Value)result).isMulti()) {
                     if (!multiValued) {
@@ -240,18 +268,20 @@ public class Pattern {
         return null;
     }
     
-    protected Object evaluateComponent(int i, BindingEnv env) {
+    protected Object evaluateComponent(int i, BindingEnv env, ConverterProcess proc) {
         Object component = components.get(i);
         Object result = null;
-        if (component instanceof String) {
+        CompiledExpression ce = (proc != null && proc.isCompiledPatterns()) ? getCompiled()[i] : null;
+        if (ce != null) {
+            result = ce.evaluate(env);
+        } else if (component instanceof String) {
             result = component;
         } else if (component instanceof Expression) {
             result = ((Expression)component).evaluate(env);
         } else if (component instanceof Script) {
             result = ((Script)component).execute(env);
         } else if (component instanceof ValueFunction) {
-            ((ValueFunction)component).setBindingEnv(env);
-            return component;
+            return ((ValueFunction)component).bind(env);
         }  else {
             // Can't happen
             throw new EpiException("Internal state error in pattern evaluation");
@@ -262,6 +292,31 @@ public class Pattern {
         return result;
     }
     
+    /**
+     * Return the compiled forms of the components, null entries being
+     * components which must be interpreted.
+     */
+    protected CompiledExpression[] getCompiled() {
+        CompiledExpression[] result = compiled;
+        if (result == null) {
+            result = new CompiledExpression[ components.size() ];
+            for (int i = 0; i < result.length; i++) {
+                Object component = components.get(i);
+                String src = null;
+                if (component instanceof Expression) {
+                    src = ((Expression)component).getExpression();
+                } else if (component instanceof Script) {
+                    src = ((Script)component).getText();
+                }
+                if (src != null) {
+                    result[i] = CompiledExpression.compile(src, engine.getUberspect(), FUNCTIONS);
+                }
+            }
+            compiled = result;
+        }
+        return result;
+    }
+    
     protected void expandPrefixes(DataContext dc) {
         if (isURI && isConstant) {
             components.set(0, dc.expandURI((String)components.get(0)));
@@ -357,6 +412,31 @@ public class Pattern {
         
     }
     
+    /**
+     * Add the names of all the variables referenced by this pattern to vars.
+     * For a dotted reference such as {a.b} both the root name and the
+     * full dotted name are added.
+     * @return false if the variables could not be determined
+     */
+    public boolean collectVariables(Set<String> vars) {
+        for (Object component : components) {
+            Object script = component instanceof ValueFunction ? ((ValueFunction)component).getScript() : component;
+            if (script instanceof Script) {
+                Set<List<String>> refs = engine.getVariables( (Script)script );
+                if (refs == null) return false;
+                for (List<String> ref : refs) {
+                    if ( ! ref.isEmpty() ) {
+                        vars.add( ref.get(0) );
+                        vars.add( String.join(".", ref) );
+                    }
+                }
+            } else if ( ! (component instanceof String) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     public String toString() {
         StringBuilder str = new StringBuilder();
         for (Object component : components) {
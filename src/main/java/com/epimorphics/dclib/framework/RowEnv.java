@@ -0,0 +1,289 @@
+/******************************************************************
+ * File:        RowEnv.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.epimorphics.dclib.sources.CSVRecord;
+import com.epimorphics.dclib.values.ColumnTypes;
+
+/**
+ * A binding environment for a single row in which the column names, and
+ * the names bound by templates, are held in an array indexed by a shared
+ * RowSchema rather than in a per-row hash table. Lookup of a schema name
+ * is a single index probe with no walk up the parent chain. Names outside
+ * the schema fall back to the normal BindingEnv behaviour.
+ * <p>
+ * Extending a row environment (see {@link #extend(List)}) copies the
+ * slots into a new, wider, array instead of chaining a new layer.
+ * </p>
+ * <p>
+ * When created from a raw CSV record the column slots are filled lazily,
+ * a cell is only parsed into a Value the first time it is looked up.
+ * Columns dropped by a projection are left unbound. The parsed cells are
+ * shared between a row and its extensions, so a cell parsed in one is
+ * parsed for all. Binding a column name only changes the environment it
+ * is bound in.
+ * </p>
+ */
+public class RowEnv extends BindingEnv {
+    private static final long serialVersionUID = 1L;
+
+    protected RowSchema schema;
+    protected Object[] slots;
+    
+    // Lazy column values, null if there is no raw record
+    protected Cells cells;
+    protected int rawWidth = 0;
+    protected BitSet rebound;      // Column slots bound in this environment, overriding the cells
+
+    /**
+     * Create a row environment
+     * @param schema the slot allocation
+     * @param slots the slot values, must be at least as long as the schema
+     * @param parent parent environment for names outside the schema, may be null
+     */
+    public RowEnv(RowSchema schema, Object[] slots, BindingEnv parent) {
+        super(parent);
+        this.schema = schema;
+        this.slots = slots;
+    }
+
+    /**
+     * Create a row environment whose first columns are parsed on demand from a raw record
+     * @param schema the slot allocation, the first width slots being the columns of the record
+     * @param raw the record
+     * @param width the number of cells of the record to use
+     * @param types memo of column types used in parsing the cells
+     * @param parent parent environment for names outside the schema, may be null
+     */
+    public RowEnv(RowSchema schema, CSVRecord raw, int width, ColumnTypes types, BindingEnv parent) {
+        this(schema, raw, width, types, null, parent);
+    }
+
+    /**
+     * Create a row environment whose first columns are parsed on demand from a raw record
+     * @param schema the slot allocation, the first width slots being the columns of the record
+     * @param raw the record
+     * @param width the number of cells of the record to use
+     * @param types memo of column types used in parsing the cells
+     * @param dropped columns of the record to leave unbound, may be null
+     * @param parent parent environment for names outside the schema, may be null
+     */
+    public RowEnv(RowSchema schema, CSVRecord raw, int width, ColumnTypes types, BitSet dropped, BindingEnv parent) {
+        this(schema, new Object[schema.size()], parent);
+        this.cells = new Cells(raw, width, types, dropped);
+        this.rawWidth = width;
+    }
+
+    public RowSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Direct access to a slot value, as stored (so ValueNull is not mapped to null)
+     */
+    public Object getSlot(int slot) {
+        if (isCell(slot)) {
+            return cells.get(slot);
+        }
+        return slots[slot];
+    }
+    
+    /**
+     * Test if a slot has a value, without forcing it to be parsed
+     */
+    protected boolean isBound(int slot) {
+        if (isCell(slot)) {
+            return cells.isBound(slot);
+        }
+        return slots[slot] != null;
+    }
+    
+    // True if the slot's value comes from the shared cells
+    private boolean isCell(int slot) {
+        return slot < rawWidth && (rebound == null || !rebound.get(slot));
+    }
+    
+    // Bind a slot in this environment, returning the old value without parsing it
+    private Object bindSlot(int slot, Object value) {
+        Object old;
+        if (isCell(slot)) {
+            old = cells.peek(slot);
+            if (rebound == null) {
+                rebound = new BitSet(rawWidth);
+            }
+            rebound.set(slot);
+        } else {
+            old = slots[slot];
+        }
+        slots[slot] = value;
+        return old;
+    }
+
+    @Override
+    protected Object doGet(Object key) {
+        int slot = schema.slotOf(key);
+        if (slot >= 0) {
+            Object v = getSlot(slot);
+            if (v != null) {
+                return unwrapNull(v);
+            }
+        }
+        return super.doGet(key);
+    }
+
+    @Override
+    public Object getLocal(String name) {
+        int slot = schema.slotOf(name);
+        if (slot >= 0) {
+            Object v = getSlot(slot);
+            if (v != null) {
+                return v;
+            }
+        }
+        return super.getLocal(name);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int slot = schema.slotOf(key);
+        if (slot >= 0) {
+            return bindSlot(slot, value);
+        }
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> m) {
+        for (Entry<? extends String, ? extends Object> e : m.entrySet()) {
+            put(e.getKey(), e.getValue());
+        }
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int slot = schema.slotOf(key);
+        if (slot >= 0) {
+            return bindSlot(slot, null);
+        }
+        return super.remove(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = schema.slotOf(key);
+        if (slot >= 0 && isBound(slot)) {
+            return true;
+        }
+        return super.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return keySet().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keySet().isEmpty();
+    }
+
+    /**
+     * Snapshot of the locally bound names, not a live view
+     */
+    @Override
+    public Set<String> keySet() {
+        Set<String> keys = new LinkedHashSet<>();
+        for (int i = 0; i < schema.size(); i++) {
+            if (isBound(i) && schema.isLive(i)) {
+                keys.add( schema.getName(i) );
+            }
+        }
+        keys.addAll( super.keySet() );
+        return keys;
+    }
+
+    /**
+     * Snapshot of the local bindings, not a live view
+     */
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        Set<Entry<String, Object>> entries = new LinkedHashSet<>();
+        for (String key : keySet()) {
+            entries.add( new SimpleEntry<>(key, getLocal(key)) );
+        }
+        return entries;
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return entrySet().stream().map(Entry::getValue).toList();
+    }
+
+    @Override
+    public RowEnv extend(List<String> names) {
+        RowSchema ext = schema.extend(names);
+        Object[] extSlots = new Object[ext.size()];
+        System.arraycopy(slots, 0, extSlots, 0, schema.size());
+        RowEnv env = new RowEnv(ext, extSlots, parent);
+        env.cells = cells;
+        env.rawWidth = rawWidth;
+        if (rebound != null) {
+            env.rebound = (BitSet) rebound.clone();
+        }
+        if ( ! super.isEmpty() ) {
+            for (Entry<String, Object> e : super.entrySet()) {
+                env.put(e.getKey(), e.getValue());
+            }
+        }
+        return env;
+    }
+
+    /**
+     * The cells of a raw record, parsed into values on first use
+     */
+    protected static class Cells {
+        final CSVRecord raw;
+        final ColumnTypes types;
+        final Object[] values;
+        final BitSet loaded;
+
+        Cells(CSVRecord raw, int width, ColumnTypes types, BitSet dropped) {
+            this.raw = raw;
+            this.types = types;
+            this.values = new Object[width];
+            // Dropped columns are marked as already loaded, with no value
+            this.loaded = dropped == null ? new BitSet(width) : (BitSet) dropped.clone();
+        }
+
+        Object get(int i) {
+            if ( ! loaded.get(i) ) {
+                loaded.set(i);
+                values[i] = types.asValue(i, raw.getTrimmed(i));
+            }
+            return values[i];
+        }
+
+        // The value if already parsed, otherwise null
+        Object peek(int i) {
+            return values[i];
+        }
+
+        boolean isBound(int i) {
+            return values[i] != null || !loaded.get(i);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/******************************************************************
+ * File:        RowSchema.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fixed allocation of variable names to integer slots, shared by all the
+ * rows of a conversion. Built once from the CSV headers and then extended,
+ * once per template, with the names that template binds.
+ * <p>
+ * Immutable apart from the cache of extensions so can be shared between threads.
+ * </p>
+ */
+public class RowSchema {
+    protected final String[] names;
+    protected final Map<String, Integer> index;
+    protected final Map<List<String>, RowSchema> extensions = new ConcurrentHashMap<>();
+
+    /**
+     * Create a schema for the given names, in slot order.
+     * If a name is repeated the last occurrence wins, matching what
+     * happens if the same names are put into a map in order.
+     */
+    public RowSchema(String... names) {
+        this.names = names;
+        this.index = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            index.put(names[i], i);
+        }
+    }
+
+    /**
+     * Return the slot for a name or -1 if it is not part of the schema
+     */
+    public int slotOf(Object name) {
+        Integer slot = index.get(name);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Return the name for a slot
+     */
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * Test if the slot is the one actually used for its name, false for
+     * earlier duplicates which are shadowed by a later occurrence
+     */
+    public boolean isLive(int slot) {
+        return index.get(names[slot]) == slot;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Return a schema with the given names appended, names already present
+     * keep their existing slots. The result is cached so callers should pass
+     * the same (unchanging) list for each row.
+     */
+    public RowSchema extend(List<String> extra) {
+        RowSchema ext = extensions.get(extra);
+        if (ext == null) {
+            List<String> all = new ArrayList<>(names.length + extra.size());
+            Collections.addAll(all, names);
+            for (String name : extra) {
+                if ( ! index.containsKey(name) && ! all.contains(name)) {
+                    all.add(name);
+                }
+            }
+            ext = all.size() == names.length ? this : new RowSchema( all.toArray(new String[all.size()]) );
+            extensions.put(extra, ext);
+        }
+        return ext;
+    }
+}
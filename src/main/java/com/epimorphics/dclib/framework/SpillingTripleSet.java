@@ -0,0 +1,369 @@
+/******************************************************************
+ * File:        SpillingTripleSet.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.jena.graph.Triple;
+
+import com.epimorphics.util.EpiException;
+
+/**
+ * Exact set of triples seen, for de-duplicating large outputs. Triples are
+ * held in memory, sharded by hash, up to a limit. When the limit is reached
+ * each shard is written out as a run in a temporary file, sorted by a 64 bit
+ * hash of the triple, with a sparse index of hashes and a Bloom filter kept in
+ * memory. A triple is then only looked for in a run's file if the run's Bloom
+ * filter says it might be there. When a shard has built up several runs they
+ * are merged into one.
+ * <p>
+ * Memory use is not fully bounded. The in memory triples are limited to
+ * maxInMemory. The Bloom filters are sized for at most one spill's worth of
+ * triples each, so take roughly 10 bytes per maxInMemory triple in total.
+ * Once merged runs outgrow their filter more lookups go to disk but the set
+ * stays exact. The sparse index still grows with the number of distinct
+ * triples, at about a quarter of a byte per triple.
+ * </p>
+ */
+public class SpillingTripleSet implements DedupStreamRDF.TripleSet {
+    protected static final int SHARDS = 16;
+    protected static final int MAX_RUNS = 8;
+    protected static final int INDEX_INTERVAL = 64;
+    protected static final double RUN_FPP = 0.01;
+
+    protected final File dir;
+    protected final int maxInMemory;
+    protected final Shard[] shards = new Shard[SHARDS];
+    protected int inMemory = 0;
+
+    /**
+     * @param dir directory for temporary files
+     * @param maxInMemory number of triples to hold in memory before spilling to disk
+     */
+    public SpillingTripleSet(File dir, int maxInMemory) {
+        this.dir = dir;
+        this.maxInMemory = maxInMemory;
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    @Override
+    public boolean add(Triple triple) {
+        String key = DedupStreamRDF.key(triple);
+        Shard shard = shards[ (key.hashCode() & 0x7fffffff) % SHARDS ];
+        if (shard.memory.contains(key)) {
+            return false;
+        }
+        try {
+            long hash = DedupStreamRDF.Bloom.hash(key);
+            for (Run run : shard.runs) {
+                if (run.contains(hash, key)) {
+                    return false;
+                }
+            }
+            shard.memory.add(key);
+            if (++inMemory > maxInMemory) {
+                spill();
+            }
+        } catch (IOException e) {
+            throw new EpiException("Failed to access dedup spill file", e);
+        }
+        return true;
+    }
+
+    /**
+     * Return the number of runs written to disk and still in use
+     */
+    public int getRunCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.runs.size();
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            for (Run run : shard.runs) {
+                run.delete();
+            }
+            shard.runs.clear();
+            shard.memory.clear();
+        }
+        inMemory = 0;
+    }
+
+    protected void spill() throws IOException {
+        for (Shard shard : shards) {
+            if ( ! shard.memory.isEmpty() ) {
+                HashedKey[] keys = new HashedKey[ shard.memory.size() ];
+                int i = 0;
+                for (String key : shard.memory) {
+                    keys[i++] = new HashedKey(key);
+                }
+                Arrays.sort(keys);
+                shard.runs.add( writeRun( Arrays.asList(keys).iterator(), keys.length ) );
+                shard.memory = new HashSet<>();
+                if (shard.runs.size() >= MAX_RUNS) {
+                    merge(shard);
+                }
+            }
+        }
+        inMemory = 0;
+    }
+
+    protected void merge(Shard shard) throws IOException {
+        long total = 0;
+        PriorityQueue<RunReader> readers = new PriorityQueue<>( (a, b) -> a.current.compareTo(b.current) );
+        try {
+            for (Run run : shard.runs) {
+                total += run.count;
+                RunReader reader = new RunReader(run.file);
+                if (reader.next()) {
+                    readers.add(reader);
+                }
+            }
+            Iterator<HashedKey> merged = new Iterator<HashedKey>() {
+                @Override
+                public boolean hasNext() {
+                    return !readers.isEmpty();
+                }
+
+                @Override
+                public HashedKey next() {
+                    RunReader reader = readers.poll();
+                    HashedKey key = reader.current;
+                    try {
+                        if (reader.next()) {
+                            readers.add(reader);
+                        } else {
+                            reader.close();
+                        }
+                    } catch (IOException e) {
+                        throw new EpiException("Failed to read dedup spill file", e);
+                    }
+                    return key;
+                }
+            };
+            Run run = writeRun(merged, total);
+            for (Run old : shard.runs) {
+                old.delete();
+            }
+            shard.runs.clear();
+            shard.runs.add(run);
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    protected Run writeRun(Iterator<HashedKey> sortedKeys, long expected) throws IOException {
+        File file = File.createTempFile("dclib-dedup", ".run", dir);
+        file.deleteOnExit();
+        // Filters are capped at one spill's worth of keys for the shard
+        Run run = new Run(file, Math.min(expected, Math.max(maxInMemory / SHARDS, 1)));
+        List<Long> indexHashes = new ArrayList<>();
+        List<Long> indexOffsets = new ArrayList<>();
+        long offset = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            while (sortedKeys.hasNext()) {
+                HashedKey key = sortedKeys.next();
+                if (run.count % INDEX_INTERVAL == 0) {
+                    indexHashes.add(key.hash);
+                    indexOffsets.add(offset);
+                }
+                byte[] bytes = key.key.getBytes(StandardCharsets.UTF_8);
+                out.writeLong(key.hash);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                offset += 12 + bytes.length;
+                run.bloom.add(key.key);
+                run.count++;
+            }
+        }
+        run.indexHashes = new long[indexHashes.size()];
+        run.indexOffsets = new long[indexOffsets.size() + 1];
+        for (int i = 0; i < indexOffsets.size(); i++) {
+            run.indexHashes[i] = indexHashes.get(i);
+            run.indexOffsets[i] = indexOffsets.get(i);
+        }
+        run.indexOffsets[indexOffsets.size()] = offset;
+        run.open();
+        return run;
+    }
+
+    protected static class Shard {
+        Set<String> memory = new HashSet<>();
+        List<Run> runs = new ArrayList<>();
+    }
+
+    /**
+     * A key together with its 64 bit hash, ordered by hash and then key
+     */
+    protected static class HashedKey implements Comparable<HashedKey> {
+        final long hash;
+        final String key;
+
+        HashedKey(String key) {
+            this(DedupStreamRDF.Bloom.hash(key), key);
+        }
+
+        HashedKey(long hash, String key) {
+            this.hash = hash;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(HashedKey other) {
+            int cmp = Long.compare(hash, other.hash);
+            return cmp != 0 ? cmp : key.compareTo(other.key);
+        }
+    }
+
+    /**
+     * A file of keys sorted by hash
+     */
+    protected static class Run {
+        final File file;
+        final DedupStreamRDF.Bloom bloom;
+        long count = 0;
+        long[] indexHashes;         // Hash of every INDEX_INTERVAL'th key
+        long[] indexOffsets;        // File offset of each index key, plus the file length
+        RandomAccessFile in;
+
+        Run(File file, long expected) {
+            this.file = file;
+            this.bloom = new DedupStreamRDF.Bloom(expected, RUN_FPP);
+        }
+
+        void open() throws IOException {
+            in = new RandomAccessFile(file, "r");
+        }
+
+        boolean contains(long hash, String key) throws IOException {
+            if ( ! bloom.mightContain(key) ) {
+                return false;
+            }
+            // Keys with this hash may start in the block before the first index entry
+            // with the hash and run on until the first index entry above it
+            int last = upperBound(hash);
+            if (last == 0) {
+                return false;
+            }
+            int block = Math.max(lowerBound(hash) - 1, 0);
+            long start = indexOffsets[block];
+            byte[] bytes = new byte[ (int) (indexOffsets[last] - start) ];
+            in.seek(start);
+            in.readFully(bytes);
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) {
+                long h = buf.getLong();
+                int len = buf.getInt();
+                if (h == hash && new String(bytes, buf.position(), len, StandardCharsets.UTF_8).equals(key)) {
+                    return true;
+                } else if (h > hash) {
+                    return false;
+                }
+                buf.position(buf.position() + len);
+            }
+            return false;
+        }
+
+        // First index entry whose hash is not below the given hash
+        private int lowerBound(long hash) {
+            int lo = 0, hi = indexHashes.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (indexHashes[mid] < hash) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        // First index entry whose hash is above the given hash
+        private int upperBound(long hash) {
+            int lo = 0, hi = indexHashes.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (indexHashes[mid] <= hash) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        void delete() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            file.delete();
+        }
+    }
+
+    /**
+     * Sequential reader over a run file
+     */
+    protected static class RunReader {
+        final DataInputStream in;
+        HashedKey current;
+
+        RunReader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        }
+
+        boolean next() throws IOException {
+            try {
+                long hash = in.readLong();
+                byte[] bytes = new byte[ in.readInt() ];
+                in.readFully(bytes);
+                current = new HashedKey(hash, new String(bytes, StandardCharsets.UTF_8));
+                return true;
+            } catch (EOFException e) {
+                close();
+                return false;
+            }
+        }
+
+        void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+}
@@ -10,6 +10,7 @@
 package com.epimorphics.dclib.framework;
 
 import java.util.List;
+import java.util.Set;
 
 import com.epimorphics.appbase.monitor.ConfigInstance;
 import org.apache.jena.graph.Node;
@@ -76,4 +77,25 @@ public interface Template extends ConfigInstance {
      * Return actual template, deferencing any TemplateRef links in the way.
      */
     public Template deref();
+
+    /**
+     * Return true if rows can be converted independently of each other, in any
+     * order and on any thread. Templates which carry state from one row to the
+     * next (e.g. hierarchies) must return false.
+     */
+    public default boolean isParallelSafe() {
+        return true;
+    }
+
+    /**
+     * Add to vars the names of all the variables that this template, and any
+     * templates it calls, might look up in a row. Used to avoid parsing and
+     * binding columns which are never referenced.
+     * @param visited templates already analysed, to cut cycles through template references
+     * @return false if the variables can't be determined, e.g. for templates which
+     * inspect the whole row, in which case all columns are bound
+     */
+    public default boolean collectVariables(Set<String> vars, Set<Template> visited) {
+        return false;
+    }
 }
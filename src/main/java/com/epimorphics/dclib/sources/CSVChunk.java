@@ -0,0 +1,260 @@
+/******************************************************************
+ * File:        CSVChunk.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.sources;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.input.BOMInputStream;
+
+/**
+ * A byte range of a CSV file which starts on a record boundary, so that
+ * it can be converted independently of the rest of the file. Each chunk
+ * knows the file's header line and the line number of its first record
+ * so row numbers match those of a conversion of the whole file.
+ * <p>
+ * Chunks are found by a single sequential scan of the memory mapped
+ * file which tracks quoting, so newlines inside quoted cells are never
+ * taken as record boundaries. Files with a linked-csv preamble are not split.
+ * </p>
+ */
+public class CSVChunk {
+    /** Size of each region of the file mapped at one time */
+    public static final int MAP_WINDOW = 64 * 1024 * 1024;
+
+    protected File file;
+    protected long start;
+    protected long end;
+    protected int lineNumber;
+    protected String[] headers;
+
+    protected CSVChunk(File file, long start, long end, int lineNumber, String[] headers) {
+        this.file = file;
+        this.start = start;
+        this.end = end;
+        this.lineNumber = lineNumber;
+        this.headers = headers;
+    }
+
+    /**
+     * Split a CSV file into at most n chunks of roughly equal size.
+     * Returns a single chunk covering the whole file if it can't be split.
+     */
+    public static List<CSVChunk> split(String filename, int n) throws IOException {
+        File file = new File(filename);
+        String[] headers;
+        boolean preamble;
+        try (InputStream in = BOMInputStream.builder().setInputStream( new FileInputStream(file) ).get()) {
+            CSVInput header = new CSVInput(in);
+            headers = header.getHeaders();
+            preamble = header.hasPreamble();
+        }
+
+        List<CSVChunk> chunks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            Scanner scanner = new Scanner(channel, size);
+            scanner.skipBOM();
+            scanner.nextRecord();      // header line
+            long dataStart = scanner.position();
+            if (preamble || n <= 1) {
+                chunks.add( new CSVChunk(file, dataStart, size, 1, headers) );
+                return chunks;
+            }
+            long chunkStart = dataStart;
+            int chunkLine = 1;
+            int line = 1;
+            for (int i = 1; i < n; i++) {
+                long target = dataStart + (size - dataStart) * i / n;
+                while (scanner.position() < target && scanner.nextRecord()) {
+                    line++;
+                }
+                if (scanner.position() >= size) break;
+                if (scanner.position() > chunkStart) {
+                    chunks.add( new CSVChunk(file, chunkStart, scanner.position(), chunkLine, headers) );
+                    chunkStart = scanner.position();
+                    chunkLine = line;
+                }
+            }
+            chunks.add( new CSVChunk(file, chunkStart, size, chunkLine, headers) );
+        }
+        return chunks;
+    }
+
+    /**
+     * Open this chunk for reading
+     */
+    public CSVInput open() throws IOException {
+        return new CSVInput(new MappedRangeInputStream(file, start, end), headers, lineNumber);
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Return the line number, as seen by the converter, of the record before the chunk.
+     * The first data line of a file is line 1.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%d-%d) from line %d", file.getName(), start, end, lineNumber);
+    }
+
+    /**
+     * Scans a channel, one mapped window at a time, for record boundaries.
+     * Quote handling matches CSVTokenizer.
+     */
+    protected static class Scanner {
+        FileChannel channel;
+        long size;
+        long base = 0;
+        MappedByteBuffer window;
+
+        Scanner(FileChannel channel, long size) throws IOException {
+            this.channel = channel;
+            this.size = size;
+            map(0);
+        }
+
+        long position() {
+            return base + window.position();
+        }
+
+        void skipBOM() throws IOException {
+            if (size >= 3 && peek() == 0xEF) {
+                window.mark();
+                if (next() == 0xEF && next() == 0xBB && next() == 0xBF) {
+                    return;
+                }
+                window.reset();
+            }
+        }
+
+        /**
+         * Advance to the start of the next record.
+         * @return false if the end of the file has been reached
+         */
+        boolean nextRecord() throws IOException {
+            boolean inQuotes = false;
+            boolean atStart = true;
+            while (true) {
+                int c = next();
+                if (c < 0) {
+                    return false;
+                }
+                if (inQuotes) {
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            next();
+                        } else {
+                            inQuotes = false;
+                        }
+                    } else if (c == '\\' && (peek() == '"' || peek() == '\\')) {
+                        next();
+                    }
+                } else if (c == '\n') {
+                    return true;
+                } else if (c == '\r') {
+                    if (peek() == '\n') next();
+                    return true;
+                } else if (c == ',') {
+                    atStart = true;
+                } else if (c == '"' && atStart) {
+                    inQuotes = true;
+                    atStart = false;
+                } else if (c != ' ' && c != '\t') {
+                    atStart = false;
+                }
+            }
+        }
+
+        private int next() throws IOException {
+            if ( ! window.hasRemaining() ) {
+                if (position() >= size) return -1;
+                map( position() );
+            }
+            return window.get() & 0xFF;
+        }
+
+        private int peek() throws IOException {
+            if ( ! window.hasRemaining() ) {
+                if (position() >= size) return -1;
+                map( position() );
+            }
+            return window.get( window.position() ) & 0xFF;
+        }
+
+        private void map(long from) throws IOException {
+            base = from;
+            window = channel.map(MapMode.READ_ONLY, from, Math.min(MAP_WINDOW, size - from));
+        }
+    }
+
+    /**
+     * Stream the bytes of a file range through a sequence of mapped windows
+     */
+    protected static class MappedRangeInputStream extends InputStream {
+        FileChannel channel;
+        long next;
+        long end;
+        MappedByteBuffer window;
+
+        MappedRangeInputStream(File file, long start, long end) throws IOException {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            this.next = start;
+            this.end = end;
+        }
+
+        private boolean ensure() throws IOException {
+            if (window != null && window.hasRemaining()) return true;
+            if (next >= end) return false;
+            long len = Math.min(MAP_WINDOW, end - next);
+            window = channel.map(MapMode.READ_ONLY, next, len);
+            next += len;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return ensure() ? window.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if ( ! ensure() ) return -1;
+            int n = Math.min(len, window.remaining());
+            window.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+    }
+}
@@ -15,11 +15,6 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 
-import com.opencsv.CSVParser;
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
-import com.opencsv.exceptions.CsvValidationException;
 import org.apache.commons.io.input.BOMInputStream;
 
 import com.epimorphics.dclib.framework.BindingEnv;
@@ -31,33 +26,45 @@ import com.epimorphics.util.NameUtils;
  * @author <a href="mailto:dave@epimorphics.com">Dave Reynolds</a>
  */
 public class CSVInput {
-    protected CSVReader in;
+    protected CSVTokenizer in;
     protected String[] headers;
     protected int lineNumber = 0;
     protected boolean hasPreamble = false;
-    protected String[] peekRow;
+    protected CSVRecord peekRow;
     
-    public CSVInput(String filename) throws IOException, CsvValidationException {
+    public CSVInput(String filename) throws IOException {
         this(BOMInputStream.builder().setInputStream( new FileInputStream(filename) ).get());
     }
     
-    public CSVInput(InputStream ins) throws IOException, CsvValidationException {
-        in = new CSVReaderBuilder(new InputStreamReader(ins, StandardCharsets.UTF_8)).build();
+    public CSVInput(InputStream ins) throws IOException {
+        in = new CSVTokenizer(new InputStreamReader(ins, StandardCharsets.UTF_8));
         
-        String[] headerLine = in.readNext();
+        CSVRecord headerLine = in.next();
         if (headerLine == null) {
             throw new EpiException("No data, cannot read header line");
         }
-        headers = new String[headerLine.length];
-        for(int i = 0; i < headerLine.length; i++) {
-            headers[i] = safeColName( headerLine[i].trim() );
+        headers = new String[headerLine.size()];
+        for(int i = 0; i < headerLine.size(); i++) {
+            headers[i] = safeColName( headerLine.getTrimmed(i) );
         }
         lineNumber++;
-        if (headerLine.length > 1 && headerLine[0].equals("#")) {
+        if (headerLine.size() > 1 && headerLine.get(0).equals("#")) {
             hasPreamble = true;
         }
     }
     
+    /**
+     * Read a headerless section of a larger CSV file, such as a {@link CSVChunk}.
+     * @param ins the data rows
+     * @param headers the (already cleaned) headers of the whole file 
+     * @param lineNumber the line number of the row preceding the section
+     */
+    public CSVInput(InputStream ins, String[] headers, int lineNumber) {
+        in = new CSVTokenizer(new InputStreamReader(ins, StandardCharsets.UTF_8));
+        this.headers = headers;
+        this.lineNumber = lineNumber;
+    }
+    
     private String safeColName(String col) {
         if (col.startsWith("<") && col.endsWith(">")) {
             // Let through URI wrapped column names raw
@@ -70,23 +77,31 @@ public class CSVInput {
         }
     }
     
+    /**
+     * Only keep the content of the flagged columns in rows read from now on,
+     * the other cells read as empty. Null to keep all columns.
+     */
+    public void setProjection(boolean[] keep) {
+        in.setProjection(keep);
+    }
+    
     /**
      * Return a look ahead to the next row.
      * Repeat calls do not advance to further rows, 
      */
-    public String[] getPeekRow() throws IOException, CsvValidationException {
+    public String[] getPeekRow() throws IOException {
         if (peekRow == null) {
-            peekRow = in.readNext();
+            peekRow = in.next();
         }
-        return peekRow;
+        return peekRow == null ? null : peekRow.toArray();
     }
     
     /**
      * Advances to the next row after a prior peek.
      * Returns true if a new peek was available.
      */
-    public boolean advancePeek() throws IOException, CsvValidationException {
-        peekRow = in.readNext();
+    public boolean advancePeek() throws IOException {
+        peekRow = in.next();
         lineNumber++;
         return peekRow != null;
     }
@@ -98,20 +113,42 @@ public class CSVInput {
      * If there have been any peek rows then returns an env based
      * on the last peeked row.
      */
-    public BindingEnv nextRow() throws IOException, CsvValidationException {
+    public BindingEnv nextRow() throws IOException {
+        String[] rowValues = nextRowValues();
+        if (rowValues == null) {
+            return null;
+        }
+        int safeLength = Math.min(rowValues.length,headers.length);
+        BindingEnv row = new BindingEnv( );
+        for (int i = 0; i < safeLength; i++) {
+            row.put(headers[i], rowValues[i]);
+        }
+        return row;
+    }
+    
+    /**
+     * Return the raw values of the next row, aligned with the headers,
+     * or null if there are no more rows. May be shorter or longer than 
+     * the header row.
+     */
+    public String[] nextRowValues() throws IOException {
+        CSVRecord record = nextRecord();
+        return record == null ? null : record.toArray();
+    }
+    
+    /**
+     * Return the next row as a tokenized record, or null if there are no more rows.
+     * Cells are only converted to strings when asked for.
+     */
+    public CSVRecord nextRecord() throws IOException {
         if (in != null) {
-            String[] rowValues = (peekRow != null) ? peekRow : in.readNext();
+            CSVRecord record = (peekRow != null) ? peekRow : in.next();
             lineNumber++;
             peekRow = null;
-            if (rowValues == null || rowValues.length == 0) {
+            if (record == null || record.size() == 0) {
                 return null;
             }
-            int safeLength = Math.min(rowValues.length,headers.length);
-            BindingEnv row = new BindingEnv( );
-            for (int i = 0; i < safeLength; i++) {
-                row.put(headers[i], rowValues[i]);
-            }
-            return row;
+            return record;
         }
         return null;
     }
@@ -9,9 +9,9 @@
 
 package com.epimorphics.dclib.sources;
 
+import java.io.File;
 import java.io.IOException;
 
-import com.opencsv.exceptions.CsvValidationException;
 import org.apache.jena.atlas.json.JsonObject;
 
 import com.epimorphics.dclib.framework.BindingEnv;
@@ -40,14 +40,22 @@ public class CSVMapSource extends MapSourceBase implements MapSource {
         return false;
     }
 
-    public CSVMapSource(JsonObject spec, ConverterProcess config) throws IOException, CsvValidationException {
+    public CSVMapSource(JsonObject spec, ConverterProcess config) throws IOException {
         super(spec);
         String keyCol = getField(JSONConstants.KEY, "key");
         String valueCol = getField(JSONConstants.VALUE, "value");
         boolean makeURI = getFlag(JSONConstants.MAKE_URI, true);
         String sourceFile = getRequiredField(JSONConstants.SOURCE);
+        File file = new File( findFile(sourceFile, config) );
+        expectSourceSize(file);
+        boolean snapshot = useSnapshot();
+        if (snapshot && restoreSnapshot(file, config) != null) {
+            return;
+        }
+        long length = file.length();
+        long modified = file.lastModified();
         
-        CSVInput in = new CSVInput( findFile(sourceFile, config) );
+        CSVInput in = new CSVInput( file.getPath() );
         if (!in.hasHeader(keyCol) || !in.hasHeader(valueCol)) {
             if (in.getHeaders().length >= 2) {
                 config.getMessageReporter().report("Defaulting to using first two columns as key and value");
@@ -67,6 +75,10 @@ public class CSVMapSource extends MapSourceBase implements MapSource {
             
             put(row.get(keyCol).toString(), asNode(makeURI, row.get(valueCol).toString()));
         }
+        table.compile();
+        if (snapshot) {
+            saveSnapshot(file, length, modified, config, MapSourceSnapshot.noEnrichment());
+        }
     }
     
     private Node asNode(boolean isURI, String value) {
@@ -0,0 +1,78 @@
+/******************************************************************
+ * File:        CSVRecord.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.sources;
+
+/**
+ * One record from a CSVTokenizer. The cell contents share a single
+ * character array and are only turned into strings on request.
+ * Immutable, so records can safely be handed between threads.
+ */
+public class CSVRecord {
+    protected final char[] chars;
+    protected final int[] starts;
+    protected final int[] ends;
+
+    public CSVRecord(char[] chars, int[] starts, int[] ends) {
+        this.chars = chars;
+        this.starts = starts;
+        this.ends = ends;
+    }
+
+    /**
+     * Number of cells in the record
+     */
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * Return the cell as a string, exactly as it appeared (after unquoting)
+     */
+    public String get(int i) {
+        return new String(chars, starts[i], ends[i] - starts[i]);
+    }
+
+    /**
+     * Return the cell as a string with leading and trailing white space
+     * removed, without creating an intermediate untrimmed string
+     */
+    public String getTrimmed(int i) {
+        int start = starts[i];
+        int end = ends[i];
+        while (start < end && chars[start] <= ' ') start++;
+        while (end > start && chars[end - 1] <= ' ') end--;
+        return new String(chars, start, end - start);
+    }
+
+    /**
+     * Test if the cell is empty or only white space
+     */
+    public boolean isBlank(int i) {
+        for (int j = starts[i]; j < ends[i]; j++) {
+            if (chars[j] > ' ') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Return all the cells as strings
+     */
+    public String[] toArray() {
+        String[] values = new String[size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = get(i);
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", toArray());
+    }
+}
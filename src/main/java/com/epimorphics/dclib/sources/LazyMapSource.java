@@ -0,0 +1,156 @@
+/******************************************************************
+ * File:        LazyMapSource.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.sources;
+
+import java.util.Collection;
+
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.atlas.json.JsonValue;
+import org.apache.jena.graph.Node;
+import org.apache.jena.riot.system.StreamRDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epimorphics.dclib.framework.ConverterProcess;
+import com.epimorphics.dclib.framework.MapSource;
+import com.epimorphics.dclib.templates.JSONConstants;
+import com.epimorphics.util.EpiException;
+
+/**
+ * Stands in for a mapping source which is only loaded when it is first
+ * used, so conversions which never reach a map() call on the source
+ * don't pay for loading it. If the specification sets "prefetch" the
+ * source is loaded in the background as soon as it is registered, so
+ * the load overlaps with reading the first rows of data.
+ * <p>
+ * Sources are lazy if their specification sets "lazy" to true, or if
+ * lazy loading is enabled by default and the specification doesn't set "lazy" to false.
+ * A source which fails to load reports the failure on each use.
+ * </p>
+ */
+public class LazyMapSource extends MapSourceBaseBase implements MapSource {
+    static final Logger log = LoggerFactory.getLogger( LazyMapSource.class );
+
+    protected static volatile boolean enabledByDefault = false;
+
+    protected final ConverterProcess proc;
+    protected volatile MapSource source;
+    protected RuntimeException failure;
+    protected Thread prefetcher;
+
+    /**
+     * Set to true to load all mapping sources lazily, unless their
+     * specification sets "lazy" to false
+     */
+    public static void setEnabledByDefault(boolean enabled) {
+        enabledByDefault = enabled;
+    }
+
+    /**
+     * Test if a source specification should be loaded lazily
+     */
+    public static boolean isLazy(JsonObject spec) {
+        JsonValue lazy = spec.get(JSONConstants.LAZY);
+        if (lazy != null && lazy.isBoolean()) {
+            return lazy.getAsBoolean().value();
+        }
+        return enabledByDefault;
+    }
+
+    public LazyMapSource(JsonObject spec, ConverterProcess proc) {
+        super(spec);
+        this.proc = proc;
+        if (getFlag(JSONConstants.PREFETCH, false)) {
+            prefetcher = new Thread(this::prefetch, "prefetch-" + getName());
+            prefetcher.setDaemon(true);
+            prefetcher.start();
+            // Don't let the process finish, and release its sources, while the load is still running
+            proc.onFinish(this::awaitPrefetch);
+        }
+    }
+
+    /**
+     * Test if the source has been loaded
+     */
+    public boolean isLoaded() {
+        return source != null;
+    }
+
+    /**
+     * Return the underlying source, loading it if necessary
+     */
+    public MapSource getSource() {
+        MapSource result = source;
+        if (result == null) {
+            result = load();
+        }
+        return result;
+    }
+
+    protected synchronized MapSource load() {
+        if (source == null) {
+            if (failure != null) {
+                throw failure;
+            }
+            ConverterProcess current = ConverterProcess.get();
+            try {
+                MapSource loaded = MapSourceFactory.sourceFrom(spec, current != null ? current : proc);
+                if (loaded == null) {
+                    throw new EpiException("Failed to instantiate mapping source: " + spec);
+                }
+                source = loaded;
+            } catch (EpiException e) {
+                failure = e;
+                throw e;
+            } catch (Exception e) {
+                failure = new EpiException("Failed to load mapping source " + getName() + ": " + e, e);
+                throw failure;
+            }
+        }
+        return source;
+    }
+
+    protected void prefetch() {
+        try {
+            long start = System.currentTimeMillis();
+            load();
+            log.debug("Prefetched mapping source " + getName() + " in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            log.warn("Failed to prefetch mapping source " + getName() + ": " + e);
+        }
+    }
+
+    protected void awaitPrefetch() {
+        try {
+            prefetcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Node lookup(String key) {
+        return getSource().lookup(key);
+    }
+
+    @Override
+    public Node lookup(String key, String valueToReturn) {
+        return getSource().lookup(key, valueToReturn);
+    }
+
+    @Override
+    public Collection<Node> lookupAll(String key) {
+        return getSource().lookupAll(key);
+    }
+
+    @Override
+    public void enrich(StreamRDF stream, Node match) {
+        getSource().enrich(stream, match);
+    }
+}
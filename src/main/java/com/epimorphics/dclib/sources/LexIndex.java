@@ -9,32 +9,67 @@
 
 package com.epimorphics.dclib.sources;
 
+import java.nio.CharBuffer;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.regex.Pattern;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
 
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.similarity.LevenshteinDistance;
-import org.apache.jena.util.OneToManyMap;
 
 /**
  * Utility to provide in-memory lookups of values based on a 
  * normalized lexical form.
+ * <p>
+ * Entries are collected as they are put and then compiled, on the first
+ * lookup, into an immutable table: the distinct normalized keys sorted
+ * and packed into a single character array, with the original keys and
+ * values held in parallel arrays. Lookups are binary searches of the table
+ * and the sorted keys double as an implicit trie for fuzzy matching.
+ * Entries put after a lookup cause the table to be rebuilt on the next lookup,
+ * so an index should normally be fully loaded before use.
+ * </p>
  * 
  * @author <a href="mailto:dave@epimorphics.com">Dave Reynolds</a>
  */
 public class LexIndex<T> {
     private static final LevenshteinDistance levDist = LevenshteinDistance.getDefaultInstance();
-    protected OneToManyMap<String, Record> table = new OneToManyMap<>();
-    
+
+    protected final ValueStore<T> store;
+    protected List<String> pendingKeys = new ArrayList<>();
+    protected int[] pendingIds = new int[16];
+    protected volatile boolean dirty = false;
+    protected volatile Table<T> table;
+
+    /**
+     * Create an index which holds its values on the heap
+     */
+    public LexIndex() {
+        this( new HeapStore<>() );
+    }
+
+    /**
+     * Create an index which holds its values in the given store
+     */
+    public LexIndex(ValueStore<T> store) {
+        this.store = store;
+        this.table = new Table<>(Collections.emptyList(), new int[0], store);
+    }
+
     /**
      * Record a value in the index.
      */
-    public void put(String key, T value) {
-        Record r = new Record(key, value);
-        table.put(r.normalized, r);
+    public synchronized void put(String key, T value) {
+        int n = pendingKeys.size();
+        if (n == pendingIds.length) {
+            pendingIds = Arrays.copyOf(pendingIds, n * 2);
+        }
+        pendingIds[n] = store.add(value);
+        pendingKeys.add(key);
+        dirty = true;
     }
 
     /**
@@ -43,41 +78,94 @@ public class LexIndex<T> {
      * to the un-normalized key will be used. Where the notion of "closest" is to be defined.
      */
     public T lookup(String key) {
-        String nkey = normalize(key);
-        Iterator<Record> i = table.getAll(nkey);
-        if (i.hasNext()) {
-            Record match = i.next();
-            // There is a result but is there more than one
-            if (i.hasNext()) {
-                // Yes, so search for best
-                int bestDist = levDist.apply(key, match.key);
-                Record best = match;
-                while (i.hasNext()) {
-                    match = i.next();
-                    int dist = levDist.apply(key, match.key);
-                    if (dist < bestDist) {
-                        bestDist = dist;
-                        best = match;
-                    }
-                }
-                return best.value;
-            } else {
-                return match.value;
-            }
-        }
-        return null;
+        Table<T> t = table();
+        int i = t.find( normalize(key, buffer.get()) );
+        return i < 0 ? null : t.closest(i, key);
     }
-    
+
     public Collection<T> lookupAll(String key) {
-    	String nkey = normalize(key);
-    	Iterator<Record> i = table.getAll(nkey);
-    	List<T> ret = new ArrayList<T>();
-    	while(i.hasNext()) {
-    		ret.add(i.next().value);    		
-    	}
-    	return ret; 
+        Table<T> t = table();
+        int i = t.find( normalize(key, buffer.get()) );
+        List<T> ret = new ArrayList<T>();
+        if (i >= 0) {
+            for (int e = t.entryStart[i]; e < t.entryStart[i+1]; e++) {
+                ret.add( t.value(e) );
+            }
+        }
+        return ret;
 	}
-    
+
+    /**
+     * Return the value whose normalized key is nearest to the normalized
+     * form of the given key, within the given number of character edits,
+     * or null if there is none. Ties are resolved as for {@link #lookup(String)}.
+     */
+    public T lookupFuzzy(String key, int maxEdits) {
+        Table<T> t = table();
+        StringBuilder nkey = normalize(key, buffer.get());
+        int i = t.find(nkey);
+        if (i < 0 && maxEdits > 0) {
+            i = t.nearest(nkey, maxEdits);
+        }
+        return i < 0 ? null : t.closest(i, key);
+    }
+
+    /**
+     * Return the number of entries in the index
+     */
+    public int size() {
+        return table().valueIds.length;
+    }
+
+    /**
+     * Compile any entries added since the last lookup into the table,
+     * saves the cost of doing so on the first lookup
+     */
+    public void compile() {
+        table();
+    }
+
+    /**
+     * Replace the contents of the index with a previously compiled table, see {@link Table}
+     * for the layout. The value of entry e is values[valueIndex[e]].
+     */
+    protected synchronized void restore(char[] keyChars, int[] keyStart, int[] entryStart, char[] origChars, int[] origStart,
+            List<? extends T> values, int[] valueIndex) {
+        int[] storeIds = new int[values.size()];
+        Arrays.fill(storeIds, -1);
+        int[] valueIds = new int[valueIndex.length];
+        for (int e = 0; e < valueIds.length; e++) {
+            int v = valueIndex[e];
+            if (storeIds[v] < 0) {
+                storeIds[v] = store.add( values.get(v) );
+            }
+            valueIds[e] = storeIds[v];
+        }
+        pendingKeys = new ArrayList<>();
+        table = new Table<>(keyChars, keyStart, entryStart, origChars, origStart, valueIds, store);
+        dirty = false;
+    }
+
+    protected Table<T> table() {
+        if ( ! dirty ) {
+            return table;
+        }
+        synchronized (this) {
+            if (dirty) {
+                List<String> keys = new ArrayList<>();
+                table.unpack(keys);
+                int[] ids = Arrays.copyOf(table.valueIds, keys.size() + pendingKeys.size());
+                System.arraycopy(pendingIds, 0, ids, keys.size(), pendingKeys.size());
+                keys.addAll(pendingKeys);
+                pendingKeys = new ArrayList<>();
+                pendingIds = new int[16];
+                table = new Table<>(keys, ids, store);
+                dirty = false;
+            }
+            return table;
+        }
+    }
+
     /**
      * Normalize a string for more robust matching, assumes English text.
      * The normalizations are:
@@ -92,35 +180,352 @@ public class LexIndex<T> {
      * @return
      */
     public static String normalize(String orig) {
-        StringBuilder norm = new StringBuilder();
-        boolean started = false;
-        
-        for (String token : StringUtils.splitByCharacterTypeCamelCase(orig)) {
-            token = token.trim().toLowerCase();
-            if ( ! token.isEmpty() ) {
-                if (! STOP.matcher(token).matches()) {
-                    if (started) {
-                        norm.append(" ");
-                    } else {
-                        started = true;
-                    }
-                    norm.append(token);
+        return normalize(orig, new StringBuilder()).toString();
+    }
+
+    /**
+     * Normalize a string, as for {@link #normalize(String)}, into the given buffer.
+     * Works in a single pass over the characters, splitting tokens on changes of
+     * character type in the same way as StringUtils.splitByCharacterTypeCamelCase,
+     * and only allocates for tokens which contain non-ASCII characters.
+     * @return the buffer, cleared and then filled with the normalized form
+     */
+    public static StringBuilder normalize(CharSequence orig, StringBuilder norm) {
+        norm.setLength(0);
+        int len = orig.length();
+        if (len == 0) {
+            return norm;
+        }
+        boolean asciiLowerCase = ! SPECIAL_CASE_LANGUAGES.contains( Locale.getDefault().getLanguage() );
+        int tokenStart = 0;
+        int currentType = Character.getType( orig.charAt(0) );
+        for (int pos = 1; pos < len; pos++) {
+            int type = Character.getType( orig.charAt(pos) );
+            if (type == currentType) {
+                continue;
+            }
+            if (type == Character.LOWERCASE_LETTER && currentType == Character.UPPERCASE_LETTER) {
+                // Camel case, the last upper case letter starts the new token
+                if (pos - 1 != tokenStart) {
+                    appendToken(orig, tokenStart, pos - 1, norm, asciiLowerCase);
+                    tokenStart = pos - 1;
                 }
+            } else {
+                appendToken(orig, tokenStart, pos, norm, asciiLowerCase);
+                tokenStart = pos;
             }
+            currentType = type;
         }
-        return norm.toString();
+        appendToken(orig, tokenStart, len, norm, asciiLowerCase);
+        return norm;
     }
-    private static final Pattern STOP = Pattern.compile("[\\p{Punct}]*|the|and");
-    
-    public final class Record {
-        protected String key;
-        protected String normalized;
-        protected T value;
-        
-        public Record(String key, T value) {
-            this.key = key;
-            this.normalized = normalize(key);
-            this.value = value;
+
+    private static void appendToken(CharSequence orig, int start, int end, StringBuilder norm, boolean asciiLowerCase) {
+        while (start < end && orig.charAt(start) <= ' ') start++;
+        while (end > start && orig.charAt(end - 1) <= ' ') end--;
+        if (start == end) {
+            return;
+        }
+        boolean ascii = true;
+        boolean punct = true;
+        for (int i = start; i < end; i++) {
+            char c = orig.charAt(i);
+            if (c >= 0x80) {
+                ascii = false;
+                punct = false;
+                break;
+            }
+            punct &= isPunct(c);
+        }
+        if (punct) {
+            return;
+        }
+        if (ascii && asciiLowerCase) {
+            if (end - start == 3 && (matchesLower(orig, start, "the") || matchesLower(orig, start, "and"))) {
+                return;
+            }
+            if (norm.length() > 0) {
+                norm.append(' ');
+            }
+            for (int i = start; i < end; i++) {
+                char c = orig.charAt(i);
+                norm.append( (c >= 'A' && c <= 'Z') ? (char)(c + ('a' - 'A')) : c );
+            }
+        } else {
+            // Locale and context sensitive case mappings, leave to String
+            String token = orig.subSequence(start, end).toString().toLowerCase();
+            if (token.equals("the") || token.equals("and")) {
+                return;
+            }
+            if (norm.length() > 0) {
+                norm.append(' ');
+            }
+            norm.append(token);
+        }
+    }
+
+    private static boolean matchesLower(CharSequence orig, int start, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = orig.charAt(start + i);
+            if (c != word.charAt(i) && c != word.charAt(i) - ('a' - 'A')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** POSIX punctuation, as matched by \p{Punct} */
+    private static boolean isPunct(char c) {
+        return (c >= '!' && c <= '/') || (c >= ':' && c <= '@') || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
+    }
+
+    private static final Set<String> SPECIAL_CASE_LANGUAGES = Set.of("tr", "az", "lt");
+
+    private static final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(StringBuilder::new);
+
+    /**
+     * Immutable packed form of the index. Distinct normalized keys are held in
+     * sorted order in keyChars, key i spanning keyStart[i] to keyStart[i+1]. Its
+     * entries are entryStart[i] to entryStart[i+1], in the order they were put,
+     * with the original key for entry e spanning origStart[e] to origStart[e+1] of origChars
+     * and the value for entry e held in the value store as valueIds[e].
+     */
+    static final class Table<T> {
+        final char[] keyChars;
+        final int[] keyStart;
+        final int[] entryStart;
+        final char[] origChars;
+        final int[] origStart;
+        final int[] valueIds;
+        final ValueStore<T> store;
+
+        Table(char[] keyChars, int[] keyStart, int[] entryStart, char[] origChars, int[] origStart, int[] valueIds, ValueStore<T> store) {
+            this.keyChars = keyChars;
+            this.keyStart = keyStart;
+            this.entryStart = entryStart;
+            this.origChars = origChars;
+            this.origStart = origStart;
+            this.valueIds = valueIds;
+            this.store = store;
+        }
+
+        Table(List<String> keys, int[] ids, ValueStore<T> store) {
+            this.store = store;
+            int n = keys.size();
+            String[] normalized = new String[n];
+            Integer[] order = new Integer[n];
+            int origLength = 0;
+            for (int i = 0; i < n; i++) {
+                normalized[i] = normalize( keys.get(i) );
+                order[i] = i;
+                origLength += keys.get(i).length();
+            }
+            Arrays.sort(order, (a, b) -> normalized[a].compareTo(normalized[b]));   // stable, so put order is kept
+
+            origChars = new char[origLength];
+            origStart = new int[n + 1];
+            valueIds = new int[n];
+            int distinct = 0;
+            int keyLength = 0;
+            for (int i = 0; i < n; i++) {
+                int e = order[i];
+                if (i == 0 || !normalized[e].equals(normalized[order[i-1]])) {
+                    distinct++;
+                    keyLength += normalized[e].length();
+                }
+                String orig = keys.get(e);
+                orig.getChars(0, orig.length(), origChars, origStart[i]);
+                origStart[i+1] = origStart[i] + orig.length();
+                valueIds[i] = ids[e];
+            }
+
+            keyChars = new char[keyLength];
+            keyStart = new int[distinct + 1];
+            entryStart = new int[distinct + 1];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                String norm = normalized[order[i]];
+                if (i == 0 || !norm.equals(normalized[order[i-1]])) {
+                    norm.getChars(0, norm.length(), keyChars, keyStart[k]);
+                    keyStart[k+1] = keyStart[k] + norm.length();
+                    entryStart[k] = i;
+                    k++;
+                }
+            }
+            entryStart[distinct] = n;
+        }
+
+        void unpack(List<String> keys) {
+            for (int e = 0; e < valueIds.length; e++) {
+                keys.add( new String(origChars, origStart[e], origStart[e+1] - origStart[e]) );
+            }
+        }
+
+        T value(int entry) {
+            return store.get( valueIds[entry] );
+        }
+
+        int entries() {
+            return valueIds.length;
+        }
+
+        int size() {
+            return keyStart.length - 1;
+        }
+
+        /**
+         * Binary search for a normalized key, return its index or -1 if not found
+         */
+        int find(CharSequence nkey) {
+            int lo = 0;
+            int hi = size() - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compare(mid, nkey);
+                if (c < 0) {
+                    lo = mid + 1;
+                } else if (c > 0) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private int compare(int i, CharSequence nkey) {
+            int start = keyStart[i];
+            int len = keyStart[i+1] - start;
+            int qlen = nkey.length();
+            int lim = Math.min(len, qlen);
+            for (int j = 0; j < lim; j++) {
+                char a = keyChars[start + j];
+                char b = nkey.charAt(j);
+                if (a != b) {
+                    return a - b;
+                }
+            }
+            return len - qlen;
+        }
+
+        /**
+         * Return the value of the entry for key i whose original key is closest to the given key
+         */
+        T closest(int i, String key) {
+            int first = entryStart[i];
+            int last = entryStart[i+1];
+            if (last - first == 1) {
+                return value(first);
+            }
+            int best = first;
+            int bestDist = Integer.MAX_VALUE;
+            for (int e = first; e < last; e++) {
+                int dist = levDist.apply(key, CharBuffer.wrap(origChars, origStart[e], origStart[e+1] - origStart[e]));
+                if (dist < bestDist) {
+                    bestDist = dist;
+                    best = e;
+                }
+            }
+            return value(best);
+        }
+
+        /**
+         * Find the key with the least edit distance, up to maxEdits, from the
+         * given normalized key. Walks the trie implied by the sorted keys,
+         * extending a row of the edit distance matrix for each trie edge
+         * and pruning branches which can no longer come within the bound.
+         * @return the index of the nearest key, or -1 if none is within bounds
+         */
+        int nearest(CharSequence nkey, int maxEdits) {
+            int[] row = new int[nkey.length() + 1];
+            for (int j = 0; j < row.length; j++) {
+                row[j] = j;
+            }
+            int[] best = { -1, maxEdits + 1 };
+            walk(0, size(), 0, row, nkey, best);
+            return best[0];
+        }
+
+        /**
+         * Search keys lo to hi, which all share the prefix of the given depth
+         * whose distances from the prefixes of nkey are given by row.
+         */
+        private void walk(int lo, int hi, int depth, int[] row, CharSequence nkey, int[] best) {
+            if (lo < hi && keyStart[lo+1] - keyStart[lo] == depth) {
+                // Key ends here, keys are sorted so only the first can be this short
+                int dist = row[row.length - 1];
+                if (dist < best[1]) {
+                    best[0] = lo;
+                    best[1] = dist;
+                }
+                lo++;
+            }
+            while (lo < hi) {
+                char c = keyChars[keyStart[lo] + depth];
+                int end = endOfBranch(lo, hi, depth, c);
+                int[] next = new int[row.length];
+                next[0] = row[0] + 1;
+                int min = next[0];
+                for (int j = 1; j < row.length; j++) {
+                    int cost = nkey.charAt(j-1) == c ? 0 : 1;
+                    next[j] = Math.min( Math.min(next[j-1] + 1, row[j] + 1), row[j-1] + cost );
+                    min = Math.min(min, next[j]);
+                }
+                if (min < best[1]) {
+                    walk(lo, end, depth + 1, next, nkey, best);
+                }
+                lo = end;
+            }
+        }
+
+        /**
+         * Return the first key after lo, up to hi, which does not have c at the given depth
+         */
+        private int endOfBranch(int lo, int hi, int depth, char c) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keyChars[keyStart[mid] + depth] <= c) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Storage for the values of an index, which are referenced by int ids
+     */
+    public interface ValueStore<T> {
+        /**
+         * Add a value to the store, returning its id. Safe to call concurrently with get.
+         */
+        public int add(T value);
+
+        public T get(int id);
+    }
+
+    /**
+     * Default value store, holds the values as objects on the heap
+     */
+    public static class HeapStore<T> implements ValueStore<T> {
+        protected volatile Object[] values = new Object[16];
+        protected int size = 0;
+
+        @Override
+        public synchronized int add(T value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = value;
+            return size++;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T get(int id) {
+            return (T) values[id];
         }
     }
 }
@@ -9,13 +9,20 @@
 
 package com.epimorphics.dclib.sources;
 
+import java.io.File;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.riot.system.StreamRDF;
 
+import com.epimorphics.dclib.framework.ConverterProcess;
 import com.epimorphics.dclib.framework.MapSource;
+import com.epimorphics.dclib.templates.JSONConstants;
 import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 
 /**
  * Generic implementation of MapSource based on an in-memory lookup table.
@@ -24,10 +31,26 @@ import org.apache.jena.graph.Node;
  * @author <a href="mailto:dave@epimorphics.com">Dave Reynolds</a>
  */
 public class MapSourceBase extends MapSourceBaseBase implements MapSource {
-    protected LexIndex<Node> table = new LexIndex<>();
+    protected LexIndex<Node> table;
+    protected NodeStore store;          // Off-heap storage for the values, if used
 
     public MapSourceBase(JsonObject spec) {
         super(spec);
+        if (getFlag(JSONConstants.OFF_HEAP, false)) {
+            store = new NodeStore();
+            table = new LexIndex<>(store);
+        } else {
+            table = new LexIndex<>();
+        }
+    }
+    
+    /**
+     * Note the size of the file the source is loaded from, used to size any off-heap storage
+     */
+    protected void expectSourceSize(File source) {
+        if (store != null) {
+            store.setExpectedSize( source.length() );
+        }
     }
     
     public void put(String key, Node value) {
@@ -54,4 +77,41 @@ public class MapSourceBase extends MapSourceBaseBase implements MapSource {
         // Default is no enrichment
     }
     
+    /**
+     * Test if the source should be saved to, and restored from, a snapshot
+     * @see MapSourceSnapshot
+     */
+    protected boolean useSnapshot() {
+        return getFlag(JSONConstants.SNAPSHOT, MapSourceSnapshot.isEnabledByDefault());
+    }
+    
+    /**
+     * Identifies the specification, and the prefixes used to interpret it, 
+     * that a snapshot was built from
+     */
+    protected String fingerprint(ConverterProcess proc) {
+        return spec.toString() + "|" + new TreeMap<>( proc.getDataContext().getPrefixes().getNsPrefixMap() );
+    }
+    
+    /**
+     * Restore the table from a snapshot of the source file, if there is an up to date one
+     * @return the snapshot or null if there was none
+     */
+    protected MapSourceSnapshot restoreSnapshot(File source, ConverterProcess proc) {
+        MapSourceSnapshot snapshot = MapSourceSnapshot.read(source, fingerprint(proc));
+        if (snapshot != null) {
+            snapshot.restoreTo(table);
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Save the compiled table, and any enrichment triples, as a snapshot of the source file
+     * @param length the length of the source when it was read
+     * @param modified the modification time of the source when it was read
+     */
+    protected void saveSnapshot(File source, long length, long modified, ConverterProcess proc, Map<Node, List<Triple>> enrichment) {
+        MapSourceSnapshot.write(source, fingerprint(proc), length, modified, table.table(), enrichment);
+    }
+    
 }
@@ -0,0 +1,170 @@
+/******************************************************************
+ * File:        MapSourceCache.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.sources;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.atlas.json.JsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.epimorphics.dclib.framework.ConverterProcess;
+import com.epimorphics.dclib.framework.MapSource;
+import com.epimorphics.dclib.templates.JSONConstants;
+
+/**
+ * Process-wide cache of loaded mapping sources, so that conversions
+ * which use the same source file, such as a batch of files converted
+ * with one template, share a single loaded index.
+ * <p>
+ * Sources are keyed on their specification, the location, modification time
+ * and size of the source file, and the prefixes used to expand URIs, so an
+ * edited file is reloaded. Each conversion process holds a reference to the
+ * sources it uses until it finishes. Unreferenced sources are evicted, least recently
+ * used first, once there are more of them than the capacity.
+ * </p>
+ * <p>
+ * The in-memory size of a loaded source can be many times that of its file,
+ * so the cache is off by default. Enable it, with a capacity to suit the
+ * sources in use, when converting many files with the same template.
+ * </p>
+ */
+public class MapSourceCache {
+    static final Logger log = LoggerFactory.getLogger( MapSourceCache.class );
+
+    protected static final MapSourceCache theCache = new MapSourceCache();
+
+    public static final int DEFAULT_CAPACITY = 4;
+
+    protected final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    protected int capacity = DEFAULT_CAPACITY;
+    protected int unreferenced = 0;
+    protected volatile boolean enabled = false;
+
+    /**
+     * Return the shared cache instance
+     */
+    public static MapSourceCache get() {
+        return theCache;
+    }
+
+    /**
+     * Action to load a source on a cache miss
+     */
+    public interface Loader {
+        public MapSource load() throws IOException;
+    }
+
+    /**
+     * Set the number of unreferenced sources to retain
+     */
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        evict();
+    }
+
+    /**
+     * Set to true to share loaded sources, false to load a fresh copy of every source
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Discard all unreferenced sources
+     */
+    public synchronized void clear() {
+        int saved = capacity;
+        capacity = 0;
+        evict();
+        capacity = saved;
+    }
+
+    /**
+     * Return the source for the given specification, loading it if
+     * it is not already cached. The source is held on behalf of the
+     * given process until that process finishes.
+     */
+    public MapSource acquire(JsonObject spec, ConverterProcess proc, Loader loader) throws IOException {
+        File file = sourceFile(spec, proc);
+        if ( !enabled || file == null ) {
+            return loader.load();
+        }
+        String key = spec.toString() + "|" + file.getAbsolutePath() + "|" + file.lastModified() + "|" + file.length()
+                + "|" + proc.getDataContext().getPrefixes().getNsPrefixMap();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.computeIfAbsent(key, k -> new Entry());
+            if (entry.refs++ == 0 && entry.source != null) {
+                unreferenced--;
+            }
+        }
+        boolean ok = false;
+        try {
+            synchronized (entry) {
+                if (entry.source == null) {
+                    entry.source = loader.load();
+                    if (entry.source != null) {
+                        log.debug("Loaded mapping source " + entry.source.getName() + " from " + file);
+                    }
+                }
+                ok = entry.source != null;
+            }
+        } finally {
+            if (!ok) {
+                release(key, entry);
+            }
+        }
+        if (!ok) {
+            return null;
+        }
+        proc.onFinish( () -> release(key, entry) );
+        return entry.source;
+    }
+
+    protected synchronized void release(String key, Entry entry) {
+        entry.refs--;
+        if (entry.refs == 0) {
+            if (entry.source == null) {
+                entries.remove(key, entry);
+            } else {
+                unreferenced++;
+            }
+        }
+        evict();
+    }
+
+    protected void evict() {
+        for (Iterator<Entry> i = entries.values().iterator(); i.hasNext() && unreferenced > capacity;) {
+            Entry entry = i.next();
+            if (entry.refs == 0 && entry.source != null) {
+                i.remove();
+                unreferenced--;
+            }
+        }
+    }
+
+    protected File sourceFile(JsonObject spec, ConverterProcess proc) {
+        JsonValue source = spec.get(JSONConstants.SOURCE);
+        if (source == null || !source.isString()) {
+            return null;
+        }
+        return proc.getDataContext().findFile( source.getAsString().value() );
+    }
+
+    protected static class Entry {
+        volatile MapSource source;
+        int refs;
+    }
+}
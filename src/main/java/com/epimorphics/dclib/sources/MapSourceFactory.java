@@ -11,7 +11,6 @@ package com.epimorphics.dclib.sources;
 
 import java.io.IOException;
 
-import com.opencsv.exceptions.CsvValidationException;
 import org.apache.jena.atlas.json.JsonObject;
 
 import com.epimorphics.dclib.framework.ConverterProcess;
@@ -19,7 +18,18 @@ import com.epimorphics.dclib.framework.MapSource;
 
 public class MapSourceFactory {
 
-    public static MapSource sourceFrom(JsonObject spec, ConverterProcess proc) throws IOException, CsvValidationException {
+    /**
+     * Return the mapping source for a specification, shared with other
+     * processes through the MapSourceCache if the source file is unchanged
+     */
+    public static MapSource sourceFrom(JsonObject spec, ConverterProcess proc) throws IOException {
+        return MapSourceCache.get().acquire(spec, proc, () -> load(spec, proc));
+    }
+
+    /**
+     * Load a fresh instance of the mapping source for a specification
+     */
+    public static MapSource load(JsonObject spec, ConverterProcess proc) throws IOException {
         if (CSVMapSource.isSpec(spec)) {
             return new CSVMapSource(spec, proc);
         } else if (RDFMapSource.isSpec(spec)) {
@@ -0,0 +1,309 @@
+/******************************************************************
+ * File:        MapSourceSnapshot.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.sources;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.datatypes.TypeMapper;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A compiled mapping source index saved alongside its source file, so
+ * that later runs can skip parsing and indexing the source. Holds the
+ * packed LexIndex table, the value nodes and any enrichment triples for
+ * those values. Each snapshot records the size and modification time of
+ * the source it was built from, and a fingerprint of the source specification,
+ * and is ignored, and so rebuilt, if any of those no longer match.
+ * <p>
+ * Snapshots are written as <code>source.hash.dcmap</code> in the source's
+ * directory and read back through a memory mapping. Failures to read or
+ * write a snapshot are logged and the source is loaded normally.
+ * </p>
+ */
+public class MapSourceSnapshot {
+    static final Logger log = LoggerFactory.getLogger( MapSourceSnapshot.class );
+
+    public static final String EXTENSION = ".dcmap";
+    protected static final long MAGIC = 0x44434C49424D4150L;      // "DCLIBMAP"
+    protected static final int VERSION = 1;
+
+    protected static final byte URI = 'U';
+    protected static final byte BLANK = 'B';
+    protected static final byte LITERAL = 'L';
+
+    protected static volatile boolean enabledByDefault = false;
+
+    protected char[] keyChars;
+    protected int[] keyStart;
+    protected int[] entryStart;
+    protected char[] origChars;
+    protected int[] origStart;
+    protected List<Node> nodes;
+    protected int[] valueIds;
+    protected Map<Node, List<Triple>> enrichment;
+
+    /**
+     * Set to true to snapshot all mapping sources, unless their
+     * specification sets "snapshot" to false
+     */
+    public static void setEnabledByDefault(boolean enabled) {
+        enabledByDefault = enabled;
+    }
+
+    public static boolean isEnabledByDefault() {
+        return enabledByDefault;
+    }
+
+    /**
+     * Load the snapshot's table into an index
+     */
+    public void restoreTo(LexIndex<Node> index) {
+        index.restore(keyChars, keyStart, entryStart, origChars, origStart, nodes, valueIds);
+    }
+
+    /**
+     * Return the enrichment triples for each value node which has any
+     */
+    public Map<Node, List<Triple>> getEnrichment() {
+        return enrichment;
+    }
+
+    /**
+     * Return the file used to hold snapshots of a source with the given fingerprint
+     */
+    public static File snapshotFile(File source, String fingerprint) {
+        return new File(source.getPath() + "." + Integer.toHexString( fingerprint.hashCode() ) + EXTENSION);
+    }
+
+    /**
+     * Read the snapshot for a source, returns null if there is no
+     * snapshot or it is out of date or unreadable
+     */
+    public static MapSourceSnapshot read(File source, String fingerprint) {
+        File file = snapshotFile(source, fingerprint);
+        if ( ! file.exists() ) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            if (in.getLong() != MAGIC || in.getInt() != VERSION
+                    || !readString(in).equals(fingerprint)
+                    || in.getLong() != source.length() || in.getLong() != source.lastModified()) {
+                log.info("Ignoring out of date mapping source snapshot " + file);
+                return null;
+            }
+            MapSourceSnapshot snapshot = new MapSourceSnapshot();
+            Node[] nodes = new Node[in.getInt()];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = readNode(in);
+            }
+            snapshot.nodes = Arrays.asList(nodes);
+            snapshot.keyChars = readChars(in);
+            snapshot.keyStart = readInts(in);
+            snapshot.entryStart = readInts(in);
+            snapshot.origChars = readChars(in);
+            snapshot.origStart = readInts(in);
+            snapshot.valueIds = readInts(in);
+            int nEnriched = in.getInt();
+            Map<Node, List<Triple>> enrichment = new HashMap<>(nEnriched * 2);
+            for (int i = 0; i < nEnriched; i++) {
+                Node node = nodes[ in.getInt() ];
+                Triple[] triples = new Triple[in.getInt()];
+                for (int t = 0; t < triples.length; t++) {
+                    triples[t] = Triple.create(nodes[in.getInt()], nodes[in.getInt()], nodes[in.getInt()]);
+                }
+                enrichment.put(node, Arrays.asList(triples));
+            }
+            snapshot.enrichment = enrichment;
+            return snapshot;
+        } catch (Exception e) {
+            log.warn("Failed to read mapping source snapshot " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Write a snapshot of a source index. The source size and modification time
+     * should be those seen before the source was read.
+     */
+    public static void write(File source, String fingerprint, long sourceLength, long sourceModified,
+            LexIndex.Table<Node> table, Map<Node, List<Triple>> enrichment) {
+        File file = snapshotFile(source, fingerprint);
+        File temp = null;
+        try {
+            temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+            Map<Node, Integer> ids = new LinkedHashMap<>();
+            int[] valueIds = new int[table.entries()];
+            for (int i = 0; i < valueIds.length; i++) {
+                valueIds[i] = idFor(ids, table.value(i));
+            }
+            List<int[]> enriched = new ArrayList<>();
+            for (Map.Entry<Node, List<Triple>> e : enrichment.entrySet()) {
+                List<Triple> triples = e.getValue();
+                int[] encoded = new int[2 + 3 * triples.size()];
+                encoded[0] = idFor(ids, e.getKey());
+                encoded[1] = triples.size();
+                int j = 2;
+                for (Triple t : triples) {
+                    encoded[j++] = idFor(ids, t.getSubject());
+                    encoded[j++] = idFor(ids, t.getPredicate());
+                    encoded[j++] = idFor(ids, t.getObject());
+                }
+                enriched.add(encoded);
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+                out.writeLong(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, fingerprint);
+                out.writeLong(sourceLength);
+                out.writeLong(sourceModified);
+                out.writeInt(ids.size());
+                for (Node node : ids.keySet()) {
+                    writeNode(out, node);
+                }
+                writeChars(out, table.keyChars);
+                writeInts(out, table.keyStart);
+                writeInts(out, table.entryStart);
+                writeChars(out, table.origChars);
+                writeInts(out, table.origStart);
+                writeInts(out, valueIds);
+                out.writeInt(enriched.size());
+                for (int[] encoded : enriched) {
+                    for (int v : encoded) {
+                        out.writeInt(v);
+                    }
+                }
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.info("Wrote mapping source snapshot " + file);
+        } catch (Exception e) {
+            log.warn("Failed to write mapping source snapshot " + file + ": " + e);
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Return an empty enrichment map
+     */
+    public static Map<Node, List<Triple>> noEnrichment() {
+        return Collections.emptyMap();
+    }
+
+    private static int idFor(Map<Node, Integer> ids, Node node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = ids.size();
+            ids.put(node, id);
+        }
+        return id;
+    }
+
+    private static void writeNode(DataOutputStream out, Node node) throws IOException {
+        if (node.isURI()) {
+            out.writeByte(URI);
+            writeString(out, node.getURI());
+        } else if (node.isBlank()) {
+            out.writeByte(BLANK);
+            writeString(out, node.getBlankNodeLabel());
+        } else if (node.isLiteral()) {
+            out.writeByte(LITERAL);
+            writeString(out, node.getLiteralLexicalForm());
+            writeString(out, node.getLiteralLanguage());
+            writeString(out, node.getLiteralDatatypeURI());
+        } else {
+            throw new IOException("Can't save node in snapshot: " + node);
+        }
+    }
+
+    private static Node readNode(ByteBuffer in) throws IOException {
+        byte type = in.get();
+        switch (type) {
+        case URI:
+            return NodeFactory.createURI( readString(in) );
+        case BLANK:
+            return NodeFactory.createBlankNode( readString(in) );
+        case LITERAL:
+            String lex = readString(in);
+            String lang = readString(in);
+            String datatype = readString(in);
+            if ( ! lang.isEmpty() ) {
+                return NodeFactory.createLiteralLang(lex, lang);
+            }
+            return NodeFactory.createLiteralDT(lex, TypeMapper.getInstance().getSafeTypeByName(datatype));
+        default:
+            throw new IOException("Bad node type in snapshot: " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeInt(s.length());
+        out.writeChars(s);
+    }
+
+    private static String readString(ByteBuffer in) {
+        return new String( readChars(in) );
+    }
+
+    private static void writeChars(DataOutputStream out, char[] chars) throws IOException {
+        out.writeInt(chars.length);
+        for (char c : chars) {
+            out.writeChar(c);
+        }
+    }
+
+    private static char[] readChars(ByteBuffer in) {
+        char[] chars = new char[in.getInt()];
+        in.asCharBuffer().get(chars);
+        in.position(in.position() + 2 * chars.length);
+        return chars;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] ints) throws IOException {
+        out.writeInt(ints.length);
+        for (int v : ints) {
+            out.writeInt(v);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer in) {
+        int[] ints = new int[in.getInt()];
+        in.asIntBuffer().get(ints);
+        in.position(in.position() + 4 * ints.length);
+        return ints;
+    }
+}
@@ -0,0 +1,295 @@
+/******************************************************************
+ * File:        NodeStore.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.sources;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+
+import com.epimorphics.util.EpiException;
+
+/**
+ * Stores RDF nodes outside the Java heap, in direct byte buffers, so that
+ * very large mapping tables don't need an object per value. Nodes are
+ * interned, each distinct node is stored once as a small encoded record
+ * and identified by an int id. Literal datatypes are interned in a separate table.
+ * Node objects are only created when a value is retrieved, a small cache
+ * avoids repeatedly decoding popular values. Storage is allocated in segments
+ * which start small, or at the expected size if that is given, and double
+ * in size up to a limit.
+ * <p>
+ * Adding nodes is synchronized, retrieval is safe from any thread for ids
+ * which have been published by the thread that added them.
+ * </p>
+ */
+public class NodeStore implements LexIndex.ValueStore<Node> {
+    protected static final int SEGMENT_SIZE = 1 << 24;
+    protected static final int MIN_SEGMENT_SIZE = 1 << 16;
+    protected static final int CACHE_SIZE = 4096;
+
+    protected static final byte URI = 'U';
+    protected static final byte BLANK = 'B';
+    protected static final byte TYPED = 'T';
+    protected static final byte LANG = 'L';
+
+    protected volatile ByteBuffer[] segments = new ByteBuffer[0];
+    protected ByteBuffer current;
+    protected int nextSegmentSize = MIN_SEGMENT_SIZE;
+    protected volatile long[] locations = new long[1024];       // segment << 32 | offset of each record
+    protected int size = 0;
+
+    protected int[] hashes = new int[1024];                     // hash of each record, for rehashing
+    protected int[] slots = new int[2048];                      // open addressed table of id + 1
+    protected ByteBuffer scratch = ByteBuffer.allocate(256);
+
+    protected volatile RDFDatatype[] datatypes = new RDFDatatype[0];
+    protected final Map<String, Integer> datatypeIds = new HashMap<>();
+
+    protected final CachedNode[] cache = new CachedNode[CACHE_SIZE];
+
+    /**
+     * Add a node, returning its id. Equal nodes are given the same id.
+     */
+    @Override
+    public synchronized int add(Node node) {
+        encode(node);
+        int hash = hashScratch();
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                id = append(hash);
+                slots[slot] = id + 1;
+                if (size * 2 > slots.length) {
+                    rehash();
+                }
+                return id;
+            }
+            if (hashes[id] == hash && matchesScratch(id)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Return the node with the given id
+     */
+    @Override
+    public Node get(int id) {
+        int c = id & (CACHE_SIZE - 1);
+        CachedNode cached = cache[c];
+        if (cached != null && cached.id == id) {
+            return cached.node;
+        }
+        Node node = decode(id);
+        cache[c] = new CachedNode(id, node);
+        return node;
+    }
+
+    /**
+     * Set the number of bytes expected to be stored, used to size the
+     * first segment. Has no effect once nodes have been added.
+     */
+    public synchronized void setExpectedSize(long bytes) {
+        if (current == null) {
+            nextSegmentSize = (int) Math.max(MIN_SEGMENT_SIZE, Math.min(bytes, SEGMENT_SIZE));
+        }
+    }
+
+    /**
+     * Return the number of distinct nodes stored
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Return the number of off-heap bytes allocated
+     */
+    public long allocatedBytes() {
+        long total = 0;
+        for (ByteBuffer segment : segments) {
+            total += segment.capacity();
+        }
+        return total;
+    }
+
+    private void encode(Node node) {
+        scratch.clear();
+        if (node.isURI()) {
+            scratch.put(URI);
+            putString( node.getURI() );
+        } else if (node.isBlank()) {
+            scratch.put(BLANK);
+            putString( node.getBlankNodeLabel() );
+        } else if (node.isLiteral()) {
+            String lang = node.getLiteralLanguage();
+            if (lang.isEmpty()) {
+                ensureScratch(5);
+                scratch.put(TYPED);
+                scratch.putInt( datatypeId(node.getLiteralDatatype()) );
+            } else {
+                scratch.put(LANG);
+                byte[] bytes = lang.getBytes(StandardCharsets.UTF_8);
+                ensureScratch(bytes.length + 4);
+                scratch.putInt( bytes.length );
+                scratch.put(bytes);
+            }
+            putString( node.getLiteralLexicalForm() );
+        } else {
+            throw new EpiException("Can't store node: " + node);
+        }
+        scratch.flip();
+    }
+
+    private void putString(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        ensureScratch(bytes.length);
+        scratch.put(bytes);
+    }
+
+    private void ensureScratch(int n) {
+        if (scratch.remaining() < n) {
+            ByteBuffer larger = ByteBuffer.allocate( Math.max(scratch.capacity() * 2, scratch.position() + n) );
+            scratch.flip();
+            larger.put(scratch);
+            scratch = larger;
+        }
+    }
+
+    private int datatypeId(RDFDatatype datatype) {
+        Integer id = datatypeIds.get( datatype.getURI() );
+        if (id == null) {
+            id = datatypes.length;
+            RDFDatatype[] extended = Arrays.copyOf(datatypes, id + 1);
+            extended[id] = datatype;
+            datatypes = extended;
+            datatypeIds.put(datatype.getURI(), id);
+        }
+        return id;
+    }
+
+    private int hashScratch() {
+        int h = 1;
+        for (int i = scratch.position(); i < scratch.limit(); i++) {
+            h = 31 * h + scratch.get(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private boolean matchesScratch(int id) {
+        ByteBuffer record = record(id);
+        return record.equals(scratch);
+    }
+
+    /**
+     * Return a buffer positioned over the content of a stored record
+     */
+    private ByteBuffer record(int id) {
+        long location = locations[id];
+        ByteBuffer segment = segments[ (int) (location >>> 32) ].duplicate();
+        int offset = (int) location;
+        int length = segment.getInt(offset);
+        segment.limit(offset + 4 + length).position(offset + 4);
+        return segment;
+    }
+
+    private int append(int hash) {
+        int length = scratch.remaining();
+        if (current == null || current.remaining() < length + 4) {
+            current = ByteBuffer.allocateDirect( Math.max(nextSegmentSize, length + 4) );
+            nextSegmentSize = Math.min(nextSegmentSize * 2, SEGMENT_SIZE);
+            ByteBuffer[] extended = Arrays.copyOf(segments, segments.length + 1);
+            extended[segments.length] = current;
+            segments = extended;
+        }
+        int id = size;
+        if (id == locations.length) {
+            locations = Arrays.copyOf(locations, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        long location = ((long)(segments.length - 1) << 32) | current.position();
+        current.putInt(length);
+        current.put(scratch);
+        hashes[id] = hash;
+        long[] locs = locations;
+        locs[id] = location;
+        locations = locs;          // republish so readers see the new entry
+        size++;
+        return id;
+    }
+
+    private void rehash() {
+        int[] expanded = new int[slots.length * 2];
+        int mask = expanded.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (expanded[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            expanded[slot] = id + 1;
+        }
+        slots = expanded;
+    }
+
+    private Node decode(int id) {
+        ByteBuffer record = record(id);
+        byte type = record.get();
+        switch (type) {
+        case URI:
+            return NodeFactory.createURI( getString(record) );
+        case BLANK:
+            return NodeFactory.createBlankNode( getString(record) );
+        case TYPED:
+            RDFDatatype datatype = datatypes[ record.getInt() ];
+            return NodeFactory.createLiteralDT( getString(record), datatype );
+        case LANG:
+            byte[] lang = new byte[ record.getInt() ];
+            record.get(lang);
+            return NodeFactory.createLiteralLang( getString(record), new String(lang, StandardCharsets.UTF_8) );
+        default:
+            throw new EpiException("Corrupt node store record " + id);
+        }
+    }
+
+    private static String getString(ByteBuffer record) {
+        byte[] bytes = new byte[ record.remaining() ];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Return all the stored nodes, mostly for testing
+     */
+    public List<Node> listNodes() {
+        List<Node> nodes = new ArrayList<>();
+        for (int id = 0; id < size(); id++) {
+            nodes.add( get(id) );
+        }
+        return nodes;
+    }
+
+    protected static final class CachedNode {
+        final int id;
+        final Node node;
+
+        CachedNode(int id, Node node) {
+            this.id = id;
+            this.node = node;
+        }
+    }
+}
@@ -9,10 +9,15 @@
 
 package com.epimorphics.dclib.sources;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.atlas.json.JsonValue;
@@ -48,6 +53,7 @@ public class RDFMapSource extends MapSourceBase implements MapSource {
     Model rdf;
     boolean enrichDescribe = false;
     List<Property> enrich = new ArrayList<>();
+    Map<Node, List<Triple>> enrichment = new ConcurrentHashMap<>();     // Enrichment triples, computed on first use or restored from a snapshot
     
     /**
      * Test if a json object specifies on of these templates
@@ -69,7 +75,19 @@ public class RDFMapSource extends MapSourceBase implements MapSource {
         List<Resource> typeConstraints = getTypeConstraints(spec, proc);
         
         String sourceFile = getRequiredField(JSONConstants.SOURCE);
-        rdf = RDFDataMgr.loadModel( "file:" + findFile(sourceFile, proc) );
+        File file = new File( findFile(sourceFile, proc) );
+        expectSourceSize(file);
+        boolean snapshot = useSnapshot();
+        if (snapshot) {
+            MapSourceSnapshot restored = restoreSnapshot(file, proc);
+            if (restored != null) {
+                enrichment = restored.getEnrichment();
+                return;
+            }
+        }
+        long length = file.length();
+        long modified = file.lastModified();
+        rdf = RDFDataMgr.loadModel( "file:" + file.getPath() );
 
         for (StmtIterator i = rdf.listStatements(null,  keyProp, (RDFNode)null); i.hasNext();) {
             Statement s = i.next();
@@ -84,9 +102,28 @@ public class RDFMapSource extends MapSourceBase implements MapSource {
                 put(key, value);
             }
         }
+        table.compile();
         
         processEnrichSpec(spec, proc);
-        
+        if (snapshot) {
+            saveSnapshot(file, length, modified, proc, computeEnrichment());
+        }
+    }
+    
+    /**
+     * Find the enrichment triples for every value in the table
+     */
+    protected Map<Node, List<Triple>> computeEnrichment() {
+        Map<Node, List<Triple>> result = new HashMap<>();
+        LexIndex.Table<Node> t = table.table();
+        for (int e = 0; e < t.entries(); e++) {
+            Node node = t.value(e);
+            List<Triple> triples = enrichmentFor(node);
+            if ( ! triples.isEmpty() ) {
+                result.put(node, triples);
+            }
+        }
+        return result;
     }
     
     protected boolean matchesTypeConstraints(List<Resource> constraints, Resource root) {
@@ -149,22 +186,39 @@ public class RDFMapSource extends MapSourceBase implements MapSource {
     
     @Override
     public void enrich(StreamRDF stream, Node match) {
-        if (match.isURI()) {
-            Resource r = rdf.getResource( match.getURI() );
-            if (enrichDescribe) {
-                Model description = Closure.closure(r, false);
-                ExtendedIterator<Triple> it = description.getGraph().find(null, null, null);
-                while (it.hasNext()) {
-                    stream.triple(it.next());
-                }
-            } else {
-                for (Property p : enrich) {
-                    for (StmtIterator si = r.listProperties(p); si.hasNext(); ) {
-                        stream.triple( si.next().asTriple() ); 
-                    }
+        for (Triple t : enrichmentFor(match)) {
+            stream.triple(t);
+        }
+    }
+    
+    /**
+     * Return the enrichment triples for a matched node. These are found
+     * once per node and then reused for each later match.
+     */
+    protected List<Triple> enrichmentFor(Node match) {
+        if (rdf == null || !match.isURI() || (!enrichDescribe && enrich.isEmpty())) {
+            return enrichment.getOrDefault(match, Collections.emptyList());
+        }
+        return enrichment.computeIfAbsent(match, this::describe);
+    }
+    
+    protected List<Triple> describe(Node match) {
+        List<Triple> triples = new ArrayList<>();
+        Resource r = rdf.getResource( match.getURI() );
+        if (enrichDescribe) {
+            Model description = Closure.closure(r, false);
+            ExtendedIterator<Triple> it = description.getGraph().find(null, null, null);
+            while (it.hasNext()) {
+                triples.add(it.next());
+            }
+        } else {
+            for (Property p : enrich) {
+                for (StmtIterator si = r.listProperties(p); si.hasNext(); ) {
+                    triples.add( si.next().asTriple() ); 
                 }
             }
-        } 
+        }
+        return triples.isEmpty() ? Collections.emptyList() : List.copyOf(triples);
     }
     
     private Property asProperty(String val, ConverterProcess proc) {
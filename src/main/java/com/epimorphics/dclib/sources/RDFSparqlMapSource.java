@@ -10,12 +10,11 @@
 package com.epimorphics.dclib.sources;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-
-import jakarta.ws.rs.NotSupportedException;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.riot.RDFDataMgr;
@@ -42,13 +41,23 @@ import org.apache.jena.util.FileManager;
  *    <li>lookup is by exact match on the ?key, no lexical normalization</li>
  *    <li>default return value is the binding of ?value</li>
  *    <li>supports extended map call where other variable bindings can be looked up</li>
+ *    <li>mapToAll returns every ?value binding for the key</li>
  * </ul>
+ * The bindings are held as a column per variable, indexed by a row per distinct key.
+ * If a key appears in several results the last binding of each variable is used.
  */
 public class RDFSparqlMapSource extends MapSourceBaseBase implements MapSource {
     public static final String KEY_VARIABLE = "key";
     public static final String VALUE_VARIABLE = "value";
     
-    protected Map<String, Map<String, Node>> table = new HashMap<String, Map<String,Node>>();
+    protected String[] columns;             // Result variables other than ?key
+    protected Node[][] cells;               // Bindings, indexed by column then row
+    protected String[] keys = new String[16];  // Key of each row
+    protected int rows = 0;
+    protected int[] slots = new int[32];    // Open addressed hash of row + 1, by key
+    protected int valueColumn = -1;
+    protected int[] valueStart;             // All ?value bindings of row i are valueList[valueStart[i] .. valueStart[i+1]]
+    protected Node[] valueList;
     
     /**
      * Test if a json object specifies on of these templates
@@ -70,25 +79,32 @@ public class RDFSparqlMapSource extends MapSourceBaseBase implements MapSource {
         String query = getRequiredField(JSONConstants.QUERY);
         query = PrefixUtils.expandQuery(query, proc.getDataContext().getPrefixes());
         
+        List<Node> values = new ArrayList<>();
+        List<Integer> valueRows = new ArrayList<>();
         QueryExecution qexec = QueryExecutionFactory.create(query, rdf);
         try {
             ResultSet results = qexec.execSelect();
+            List<String> vars = new ArrayList<>( results.getResultVars() );
+            vars.remove(KEY_VARIABLE);
+            columns = vars.toArray( new String[0] );
+            valueColumn = vars.indexOf(VALUE_VARIABLE);
+            cells = new Node[columns.length][16];
             while (results.hasNext()) {
-                QuerySolution row = results.next();
-                RDFNode keyn = row.get(KEY_VARIABLE);
+                QuerySolution result = results.next();
+                RDFNode keyn = result.get(KEY_VARIABLE);
                 if (keyn == null || keyn.isAnon()) {
                     proc.getMessageReporter().report("Warning: ?key binding missing in RDFSparqlMapSource " + getName());
                 } else {
                     String key = keyn.isURIResource() ? keyn.asResource().getURI() : keyn.asLiteral().getLexicalForm();
-                    Map<String, Node> tableEntry = table.get(key);
-                    if (tableEntry == null) {
-                        tableEntry = new HashMap<>();
-                        table.put(key, tableEntry);
-                    }
-                    for (Iterator<String> vars = row.varNames(); vars.hasNext();) {
-                        String var = vars.next();
-                        if ( ! var.equals(KEY_VARIABLE)) {
-                            tableEntry.put(var, row.get(var).asNode());
+                    int row = rowFor(key);
+                    for (int c = 0; c < columns.length; c++) {
+                        RDFNode binding = result.get(columns[c]);
+                        if (binding != null) {
+                            cells[c][row] = binding.asNode();
+                            if (c == valueColumn) {
+                                values.add( binding.asNode() );
+                                valueRows.add(row);
+                            }
                         }
                     }
                 }
@@ -96,8 +112,111 @@ public class RDFSparqlMapSource extends MapSourceBaseBase implements MapSource {
         } finally {
             qexec.close();
         }
+        indexValues(values, valueRows);
     }    
     
+    /**
+     * Return the row for a key, adding a new row if there isn't one
+     */
+    protected int rowFor(String key) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] != 0) {
+            int row = slots[slot] - 1;
+            if (keys[row].equals(key)) {
+                return row;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int row = rows++;
+        if (row == keys.length) {
+            keys = Arrays.copyOf(keys, row * 2);
+            for (int c = 0; c < cells.length; c++) {
+                cells[c] = Arrays.copyOf(cells[c], row * 2);
+            }
+        }
+        keys[row] = key;
+        slots[slot] = row + 1;
+        if (rows * 2 > slots.length) {
+            int[] expanded = new int[slots.length * 2];
+            mask = expanded.length - 1;
+            for (int r = 0; r < rows; r++) {
+                int s = hash(keys[r]) & mask;
+                while (expanded[s] != 0) {
+                    s = (s + 1) & mask;
+                }
+                expanded[s] = r + 1;
+            }
+            slots = expanded;
+        }
+        return row;
+    }
+    
+    /**
+     * Find the row for a key, returns -1 if there is none
+     */
+    protected int findRow(String key) {
+        int mask = slots.length - 1;
+        for (int slot = hash(key) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (keys[row].equals(key)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+    
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+    
+    /**
+     * Group the distinct ?value bindings of each row
+     */
+    private void indexValues(List<Node> values, List<Integer> valueRows) {
+        valueStart = new int[rows + 1];
+        for (int row : valueRows) {
+            valueStart[row + 1]++;
+        }
+        for (int r = 0; r < rows; r++) {
+            valueStart[r + 1] += valueStart[r];
+        }
+        int[] fill = Arrays.copyOf(valueStart, rows);
+        valueList = new Node[values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            int row = valueRows.get(i);
+            Node value = values.get(i);
+            boolean seen = false;
+            for (int j = valueStart[row]; j < fill[row]; j++) {
+                if (valueList[j].equals(value)) {
+                    seen = true;
+                    break;
+                }
+            }
+            if ( ! seen ) {
+                valueList[ fill[row]++ ] = value;
+            }
+        }
+        // Compact out duplicates
+        int n = 0;
+        for (int r = 0; r < rows; r++) {
+            int start = valueStart[r];
+            valueStart[r] = n;
+            for (int j = start; j < fill[r]; j++) {
+                valueList[n++] = valueList[j];
+            }
+        }
+        valueStart[rows] = n;
+        valueList = Arrays.copyOf(valueList, n);
+    }
+    
+    /**
+     * Return the number of distinct keys
+     */
+    public int size() {
+        return rows;
+    }
 
     @Override
     public Node lookup(String key) {
@@ -106,9 +225,13 @@ public class RDFSparqlMapSource extends MapSourceBaseBase implements MapSource {
 
     @Override
     public Node lookup(String key, String valueToReturn) {
-        Map<String, Node> tableEntry = table.get(key);
-        if (tableEntry != null) {
-            return tableEntry.get(valueToReturn);
+        int row = findRow(key);
+        if (row != -1) {
+            for (int c = 0; c < columns.length; c++) {
+                if (columns[c].equals(valueToReturn)) {
+                    return cells[c][row];
+                }
+            }
         }
         return null;
     }
@@ -118,8 +241,12 @@ public class RDFSparqlMapSource extends MapSourceBaseBase implements MapSource {
         // No enrichment supported
     }
 
-	@Override
-	public Collection<Node> lookupAll(String key) {
-		throw new NotSupportedException(key+".mapToAll() not supported for RDF SPARQL mapping sources.");
-	}
+    @Override
+    public Collection<Node> lookupAll(String key) {
+        int row = findRow(key);
+        if (row == -1) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList( Arrays.asList(valueList).subList(valueStart[row], valueStart[row + 1]) );
+    }
 }
@@ -12,6 +12,7 @@ package com.epimorphics.dclib.templates;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.atlas.json.JsonValue;
@@ -102,7 +103,7 @@ public class CompositeTemplate extends ParameterizedTemplate implements Template
             if (template.isApplicableTo(proc.getHeaders()) && template.isApplicableTo(proc, env, rowNumber)) {
                 reportApplying(proc, template, rowNumber);
                 try {
-                    Node n = template.convertRow(proc, env, rowNumber);
+                    Node n = proc.convertRow(template, env, rowNumber);
                     if (result == null && n != null) {
                         result = n;
                     }
@@ -121,6 +122,29 @@ public class CompositeTemplate extends ParameterizedTemplate implements Template
         return result;
     }
     
+    @Override
+    public boolean isParallelSafe() {
+        if ( ! super.isParallelSafe() ) return false;
+        for (Template template : templates) {
+            if ( ! template.isParallelSafe() ) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Columns of the form "&lt;url&gt;" are found by scanning the row so are
+     * not included, ConverterProcess always binds those.
+     */
+    @Override
+    public boolean collectVariables(Set<String> vars, Set<Template> visited) {
+        if ( ! super.collectVariables(vars, visited) ) return false;
+        if (guard != null && ! guard.collectVariables(vars) ) return false;
+        for (Template template : templates) {
+            if ( ! template.collectVariables(vars, visited) ) return false;
+        }
+        return true;
+    }
+
     /**
      * Check for any columns of form "<url>" and extract those directly.
      */
@@ -185,7 +209,7 @@ public class CompositeTemplate extends ParameterizedTemplate implements Template
         for (Template t : getTemplates(spec.get(JSONConstants.ONE_OFFS), dc)) {
             reportApplying(proc, t, -1);
             t.preamble(proc, env);
-            t.convertRow(proc, env, 0);
+            proc.convertRow(t, env, 0);
         }
         
         for (Template t : templates) {
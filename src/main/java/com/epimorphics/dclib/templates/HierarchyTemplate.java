@@ -10,7 +10,9 @@
 package com.epimorphics.dclib.templates;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.jena.atlas.json.JsonObject;
 
@@ -84,7 +86,7 @@ public class HierarchyTemplate extends TemplateBase implements Template {
         Node resource = null;
         for (int i = 0; i < state.length; i++) {
             try {
-                resource = levelTemplates.get(i).convertRow(proc, row, rowNumber);
+                resource = proc.convertRow(levelTemplates.get(i), row, rowNumber);
                 if (resource != null) {
                     state[i] = resource;
                     if (i > 0 && state[i-1] != null) {
@@ -106,6 +108,21 @@ public class HierarchyTemplate extends TemplateBase implements Template {
         return resource;
     }
 
+    @Override
+    public boolean isParallelSafe() {
+        // Parent links depend on the resources generated by earlier rows
+        return false;
+    }
+
+    @Override
+    public boolean collectVariables(Set<String> vars, Set<Template> visited) {
+        if ( ! collectVariables(vars, Arrays.asList(parentLink, childLink, topLink, invTopLink)) ) return false;
+        for (Template template : levelTemplates) {
+            if ( ! template.collectVariables(vars, visited) ) return false;
+        }
+        return true;
+    }
+
     protected void condLink(ConverterProcess proc, BindingEnv row, Pattern link,
             Node resource, Node parent, int rowNumber) {
         if (link != null) {
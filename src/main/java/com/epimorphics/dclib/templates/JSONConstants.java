@@ -46,5 +46,9 @@ public class JSONConstants {
     public static final String MAKE_URI     = "makeURI";
     public static final String ENRICH       = "enrich";
     public static final String QUERY        = "query";
+    public static final String SNAPSHOT     = "snapshot";
+    public static final String OFF_HEAP     = "offHeap";
+    public static final String LAZY         = "lazy";
+    public static final String PREFETCH     = "prefetch";
     
 }
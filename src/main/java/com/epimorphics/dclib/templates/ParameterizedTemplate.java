@@ -20,6 +20,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.atlas.json.JsonValue;
@@ -36,6 +37,7 @@ import org.apache.jena.graph.NodeFactory;
 
 public class ParameterizedTemplate extends TemplateBase implements Template {
     protected List<Map<String, Pattern>> parameters = new ArrayList<>();
+    protected List<String> boundNames = new ArrayList<>();
     protected DataContext dc;
     protected Template template;
     
@@ -70,7 +72,9 @@ public class ParameterizedTemplate extends TemplateBase implements Template {
     
     protected void parseBindings(JsonValue jv) {
         if (jv.isObject()) {
-            parameters.add( getBindingSet( jv.getAsObject() ) );
+            Map<String, Pattern> bindingSet = getBindingSet( jv.getAsObject() );
+            parameters.add( bindingSet );
+            boundNames.addAll( bindingSet.keySet() );
         } else if (jv.isArray()) {
             Iterator<JsonValue> i = jv.getAsArray().iterator();
             while (i.hasNext()) {
@@ -99,15 +103,30 @@ public class ParameterizedTemplate extends TemplateBase implements Template {
     public Node convertRow(ConverterProcess proc, BindingEnv row, int rowNumber) {
         super.convertRow(proc, row, rowNumber);
         if (template != null) {
-            return template.convertRow(proc, bindParameters(proc, row, rowNumber), rowNumber);
+            return proc.convertRow(template, bindParameters(proc, row, rowNumber), rowNumber);
         } else {
             // True for a composite template with no singleton template specified
             return null;
         }
     }  
     
+    @Override
+    public boolean isParallelSafe() {
+        return template == null || template.isParallelSafe();
+    }
+
+    @Override
+    public boolean collectVariables(Set<String> vars, Set<Template> visited) {
+        List<Pattern> all = new ArrayList<>();
+        for (Map<String, Pattern> bindingSet : parameters) {
+            all.addAll( bindingSet.values() );
+        }
+        if ( ! collectVariables(vars, all) ) return false;
+        return template == null || template.collectVariables(vars, visited);
+    }
+
     protected BindingEnv bindParameters(ConverterProcess proc, BindingEnv row, int rowNumber) {
-        BindingEnv env = new BindingEnv(row);
+        BindingEnv env = row.extend(boundNames);
         for (Map<String, Pattern> bindingSet : parameters) {
             for (Entry<String, Pattern> ent : bindingSet.entrySet()) {
                 try {
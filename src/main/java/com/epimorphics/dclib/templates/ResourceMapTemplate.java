@@ -9,9 +9,13 @@
 
 package com.epimorphics.dclib.templates;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.commons.jexl2.JexlException;
 import org.apache.jena.atlas.json.JsonObject;
@@ -38,6 +42,8 @@ import org.apache.jena.util.OneToManyMap;
  * @author <a href="mailto:dave@epimorphics.com">Dave Reynolds</a>
  */
 public class ResourceMapTemplate extends TemplateBase implements Template {
+    protected static final List<String> ROOT_BINDING = Collections.singletonList(ConverterProcess.ROOT_NAME);
+    
     protected Pattern root;
     protected OneToManyMap<Pattern, Pattern> patterns = new OneToManyMap<Pattern, Pattern>();
     
@@ -79,7 +85,7 @@ public class ResourceMapTemplate extends TemplateBase implements Template {
         proc.debugCheck(row, rowNumber, root);
         Node subject = root.evaluateAsURINode(row, proc, rowNumber);
         if (subject == null) return subject;
-        BindingEnv env = new BindingEnv(row);
+        BindingEnv env = row.extend(ROOT_BINDING);
         env.put(ConverterProcess.ROOT_NAME, new ValueNode(subject));
         for (Map.Entry<Pattern, Pattern> entry : patterns.entrySet()) {
             Pattern propPattern = entry.getKey();
@@ -114,4 +120,15 @@ public class ResourceMapTemplate extends TemplateBase implements Template {
         return subject;
     }
 
+    @Override
+    public boolean collectVariables(Set<String> vars, Set<Template> visited) {
+        List<Pattern> all = new ArrayList<>();
+        all.add( root );
+        for (Map.Entry<Pattern, Pattern> entry : patterns.entrySet()) {
+            all.add( entry.getKey() );
+            all.add( entry.getValue() );
+        }
+        return collectVariables(vars, all);
+    }
+
 }
@@ -17,7 +17,6 @@ import java.util.List;
 import java.util.Set;
 import java.util.regex.Matcher;
 
-import com.opencsv.exceptions.CsvValidationException;
 import org.apache.jena.atlas.json.JsonObject;
 import org.apache.jena.atlas.json.JsonValue;
 
@@ -29,6 +28,7 @@ import com.epimorphics.dclib.framework.MapSource;
 import com.epimorphics.dclib.framework.NullResult;
 import com.epimorphics.dclib.framework.Pattern;
 import com.epimorphics.dclib.framework.Template;
+import com.epimorphics.dclib.sources.LazyMapSource;
 import com.epimorphics.dclib.sources.MapSourceFactory;
 import com.epimorphics.dclib.values.ValueNull;
 import com.epimorphics.util.EpiException;
@@ -186,14 +186,18 @@ public class TemplateBase implements Template {
         try {
             MapSource source = null;
             if (spec.isObject()) {
-                source = MapSourceFactory.sourceFrom(spec.getAsObject(), config);
+                if (LazyMapSource.isLazy(spec.getAsObject())) {
+                    source = new LazyMapSource(spec.getAsObject(), config);
+                } else {
+                    source = MapSourceFactory.sourceFrom(spec.getAsObject(), config);
+                }
             }
             if (source == null) {
                 throw new EpiException("Failed to instantiate mapping source: " + spec);
             } else {
                 config.getDataContext().registerSource(source);
             }
-        } catch (IOException | CsvValidationException e) {
+        } catch (IOException e) {
             throw new EpiException(e);
         }
     }
@@ -282,6 +286,25 @@ public class TemplateBase implements Template {
         return asList(optionalColumns);
     }
     
+    /**
+     * Add the variables looked up by the applicability test of this template,
+     * and those referenced by the given (possibly null) patterns.
+     * @return false if any of the pattern variables could not be determined
+     */
+    protected boolean collectVariables(Set<String> vars, Iterable<Pattern> patterns) {
+        if (requiredColumns != null) {
+            for (String required : requiredColumns) {
+                vars.add(required);
+            }
+        }
+        for (Pattern p : patterns) {
+            if (p != null && ! p.collectVariables(vars)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     private List<String> asList(String[] array) {
         if (array != null) {
             List<String> result = new ArrayList<>( array.length );
@@ -10,6 +10,7 @@
 package com.epimorphics.dclib.templates;
 
 import java.util.List;
+import java.util.Set;
 
 import com.epimorphics.dclib.framework.BindingEnv;
 import com.epimorphics.dclib.framework.ConverterProcess;
@@ -103,6 +104,25 @@ public class TemplateRef implements Template {
         return getTemplate().optional();
     }
     
+    @Override
+    public boolean isParallelSafe() {
+        return getTemplate().isParallelSafe();
+    }
+
+    @Override
+    public boolean collectVariables(Set<String> vars, Set<Template> visited) {
+        Template template;
+        try {
+            template = getTemplate();
+        } catch (EpiException e) {
+            return false;
+        }
+        if ( ! visited.add(template) ) {
+            return true;
+        }
+        return template.collectVariables(vars, visited);
+    }
+
     @Override
     public String toString() {
         return "TemplateRef-" + getName();
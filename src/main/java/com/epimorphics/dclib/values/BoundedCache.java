@@ -0,0 +1,70 @@
+/******************************************************************
+ * File:        BoundedCache.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.values;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A size bounded cache which can be shared between conversion threads
+ * without locking. Values are computed outside the map so two threads
+ * may both compute a missing value, the first to be stored wins. When
+ * the cache is over size arbitrary entries are dropped, so it is only
+ * suitable for values which are cheap to recreate relative to their use.
+ */
+public class BoundedCache<K, V> {
+    protected final int maxSize;
+    protected final ConcurrentHashMap<K, V> map = new ConcurrentHashMap<>();
+
+    public BoundedCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the cached value for the key, or null if there is none
+     */
+    public V get(K key) {
+        return map.get(key);
+    }
+
+    /**
+     * Return the cached value for the key, computing and caching it if necessary
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> compute) {
+        V value = map.get(key);
+        if (value == null) {
+            value = compute.apply(key);
+            V prior = map.putIfAbsent(key, value);
+            if (prior != null) {
+                return prior;
+            }
+            if (map.size() > maxSize) {
+                evict();
+            }
+        }
+        return value;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    protected void evict() {
+        Iterator<K> i = map.keySet().iterator();
+        while (map.size() > maxSize && i.hasNext()) {
+            i.next();
+            i.remove();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/******************************************************************
+ * File:        ColumnTypes.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.values;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.regex.Pattern;
+
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.NodeFactory;
+
+/**
+ * Parses cell values in the same way as {@link ValueFactory#asValue(String)}
+ * but remembers the kind of value last seen in each column. The next cell
+ * of that column is tested against that kind first, so a uniformly typed
+ * column costs a single pattern match per cell instead of a chain of them.
+ * <p>
+ * The lexical forms of the different kinds are disjoint so a match on the
+ * remembered kind always gives the same result as a full classification.
+ * Safe to share between threads, the memo is only ever a hint.
+ * </p>
+ */
+public class ColumnTypes {
+
+    /**
+     * The kinds of value a non-empty cell can parse to, in classification order
+     */
+    public enum Kind {
+        INTEGER(ValueNumber.INTEGER_PATTERN, null),
+        FLOAT(ValueNumber.FLOAT_PATTERN, null),
+        DECIMAL(ValueNumber.DECIMAL_PATTERN, null),
+        DATETIME(ValueDate.DATETIME_PATTERN, XSDDatatype.XSDdateTime),
+        DATE(ValueDate.DATE_PATTERN, XSDDatatype.XSDdate),
+        TIME(ValueDate.TIME_PATTERN, XSDDatatype.XSDtime),
+        GYEARMONTH(ValueDate.GYEARMONTH_PATTERN, XSDDatatype.XSDgYearMonth),
+        STRING(null, null);
+
+        final Pattern pattern;
+        final RDFDatatype datatype;
+
+        Kind(Pattern pattern, RDFDatatype datatype) {
+            this.pattern = pattern;
+            this.datatype = datatype;
+        }
+
+        boolean matches(String lex) {
+            return pattern == null ? !couldBeTyped(lex) : pattern.matcher(lex).matches();
+        }
+
+        Value build(String lex) {
+            switch (this) {
+            case INTEGER:
+                try {
+                    return new ValueNumber(Long.valueOf(lex), lex);
+                } catch (NumberFormatException e) {
+                    return new ValueNumber(new BigInteger(lex), lex);
+                }
+            case FLOAT:
+                return new ValueNumber(Double.valueOf(lex), lex);
+            case DECIMAL:
+                return new ValueNumber(new BigDecimal(lex), lex);
+            case STRING:
+                return new ValueString(lex);
+            default:
+                return new ValueDate( NodeFactory.createLiteralDT(lex, datatype) );
+            }
+        }
+    }
+
+    protected static final Kind[] NUMBER_KINDS = { Kind.INTEGER, Kind.FLOAT, Kind.DECIMAL };
+    protected static final Kind[] DATE_KINDS = { Kind.DATETIME, Kind.DATE, Kind.TIME, Kind.GYEARMONTH };
+    
+    protected final Kind[] kinds;
+
+    public ColumnTypes(int width) {
+        kinds = new Kind[width];
+    }
+
+    /**
+     * Parse the (trimmed) value of a cell in the given column
+     */
+    public Value asValue(int column, String lex) {
+        if (lex == null || lex.isEmpty()) {
+            return new ValueNull();
+        }
+        Kind hint = column < kinds.length ? kinds[column] : null;
+        if (hint != null && hint.matches(lex)) {
+            return hint.build(lex);
+        }
+        Value value = ValueFactory.asValue(lex);
+        if (column < kinds.length) {
+            kinds[column] = kindOf(value, lex);
+        }
+        return value;
+    }
+
+    /**
+     * Return the kind most recently seen in a column, or null if none seen yet
+     */
+    public Kind getKind(int column) {
+        return kinds[column];
+    }
+
+    private static Kind kindOf(Value value, String lex) {
+        if (value instanceof ValueNumber) {
+            for (Kind k : NUMBER_KINDS) {
+                if (k.pattern.matcher(lex).matches()) return k;
+            }
+        } else if (value instanceof ValueDate) {
+            for (Kind k : DATE_KINDS) {
+                if (k.pattern.matcher(lex).matches()) return k;
+            }
+        } else if (value instanceof ValueString && !couldBeTyped(lex)) {
+            return Kind.STRING;
+        }
+        return null;
+    }
+
+    /**
+     * Quick test on the first character, numbers and dates all start with a digit or sign
+     */
+    public static boolean couldBeTyped(String lex) {
+        char c = lex.charAt(0);
+        return (c >= '0' && c <= '9') || c == '-' || c == '+';
+    }
+}
@@ -0,0 +1,195 @@
+/******************************************************************
+ * File:        DateFormatParser.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.values;
+
+import org.apache.jena.vocabulary.XSD;
+import org.joda.time.Chronology;
+import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.DateTimeParser;
+import org.joda.time.format.DateTimeParserBucket;
+
+/**
+ * A compiled set of alternative date formats, as used by asDate(format, type).
+ * Each alternative is a Joda time pattern and the alternatives are separated by "|".
+ * The alternatives are tried in order, without raising exceptions for ones
+ * that don't match, and the first match is formatted directly as the lexical
+ * form of the requested xsd date/time type.
+ * <p>
+ * Compiled formats are shared, use {@link #forFormat(String)} to find one.
+ * </p>
+ */
+public class DateFormatParser {
+    public static final int MAX_FORMAT_CACHE = 1000;
+
+    protected static final BoundedCache<String, DateFormatParser> formatCache = new BoundedCache<>(MAX_FORMAT_CACHE);
+
+    protected static final int DATETIME   = 0;
+    protected static final int DATE       = 1;
+    protected static final int TIME       = 2;
+    protected static final int GYEARMONTH = 3;
+    protected static final int GYEAR      = 4;
+
+    protected final Alternative[] alternatives;
+
+    /**
+     * Return the compiled version of a format, shared by all callers
+     */
+    public static DateFormatParser forFormat(String format) {
+        return formatCache.computeIfAbsent(format, DateFormatParser::new);
+    }
+
+    public DateFormatParser(String format) {
+        String[] fmts = format.split("\\|");
+        alternatives = new Alternative[fmts.length];
+        for (int i = 0; i < fmts.length; i++) {
+            alternatives[i] = Alternative.compile(fmts[i]);
+        }
+    }
+
+    /**
+     * Parse a string using the first alternative format that matches it.
+     * @param lex the string to parse
+     * @param typeURI the URI for the date time type - can be one of xsd:dateTime, xsd:date, xsd:time, xsd:gYearMonth, xsd:gYear
+     * @return the lexical form of the date in the given type, or null if no alternative matches or the type is not a date time type
+     */
+    public String parse(String lex, String typeURI) {
+        int type = typeFor(typeURI);
+        if (type == -1) {
+            return null;
+        }
+        for (Alternative alternative : alternatives) {
+            if (alternative != null) {
+                String formatted = alternative.parse(lex, type);
+                if (formatted != null) {
+                    return formatted;
+                }
+            }
+        }
+        return null;
+    }
+
+    protected static int typeFor(String typeURI) {
+        if (typeURI.equals(XSD.dateTime.getURI())) {
+            return DATETIME;
+        } else if (typeURI.equals(XSD.date.getURI())) {
+            return DATE;
+        } else if (typeURI.equals(XSD.time.getURI())) {
+            return TIME;
+        } else if (typeURI.equals(XSD.gYearMonth.getURI())) {
+            return GYEARMONTH;
+        } else if (typeURI.equals(XSD.gYear.getURI())) {
+            return GYEAR;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * One compiled alternative format
+     */
+    protected static class Alternative {
+        protected final DateTimeFormatter formatter;
+        protected final DateTimeParser parser;
+        protected final boolean withTZ;
+
+        protected Alternative(DateTimeFormatter formatter, boolean withTZ) {
+            this.formatter = formatter;
+            this.parser = formatter.getParser();
+            this.withTZ = withTZ;
+        }
+
+        /**
+         * Compile a Joda time pattern, returns null if the pattern is not legal
+         */
+        protected static Alternative compile(String fmt) {
+            try {
+                return new Alternative( DateTimeFormat.forPattern(fmt), fmt.contains("Z") );
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Parse the string the way DateTimeFormatter.parseDateTime does, returning
+         * the formatted result or null if the string doesn't match
+         */
+        protected String parse(String lex, int type) {
+            Chronology chrono = ISOChronology.getInstance();
+            DateTimeParserBucket bucket = new DateTimeParserBucket(0, chrono, formatter.getLocale(), formatter.getPivotYear(), formatter.getDefaultYear());
+            if (parser.parseInto(bucket, lex, 0) != lex.length()) {
+                return null;
+            }
+            long millis;
+            try {
+                millis = bucket.computeMillis(true, lex);
+            } catch (IllegalArgumentException e) {
+                // Field out of range or a local time skipped by a clock change
+                return null;
+            }
+            DateTimeZone zone = chrono.getZone();
+            if (withTZ && bucket.getOffsetInteger() != null) {
+                zone = DateTimeZone.forOffsetMillis( bucket.getOffsetInteger() );
+            } else if (bucket.getZone() != null) {
+                zone = bucket.getZone();
+            }
+            return format(chrono.withZone(zone), millis, type);
+        }
+
+        protected String format(Chronology chrono, long millis, int type) {
+            StringBuilder buf = new StringBuilder(32);
+            if (type != TIME) {
+                appendPadded(buf, chrono.year().get(millis), 4);
+                if (type != GYEAR) {
+                    buf.append('-');
+                    appendPadded(buf, chrono.monthOfYear().get(millis), 2);
+                }
+                if (type == DATETIME || type == DATE) {
+                    buf.append('-');
+                    appendPadded(buf, chrono.dayOfMonth().get(millis), 2);
+                }
+                if (type == DATETIME) {
+                    buf.append('T');
+                }
+            }
+            if (type == DATETIME || type == TIME) {
+                appendPadded(buf, chrono.hourOfDay().get(millis), 2);
+                buf.append(':');
+                appendPadded(buf, chrono.minuteOfHour().get(millis), 2);
+                buf.append(':');
+                appendPadded(buf, chrono.secondOfMinute().get(millis), 2);
+                int ms = chrono.millisOfSecond().get(millis);
+                if (ms != 0) {
+                    buf.append('.');
+                    appendPadded(buf, ms, 3);
+                }
+            }
+            if (withTZ && type != GYEARMONTH && type != GYEAR) {
+                String id = chrono.getZone().getID();
+                buf.append( id.endsWith("UTC") ? id.replace("UTC", "Z") : id );
+            }
+            return buf.toString();
+        }
+    }
+
+    // Match Joda's printing of padded numeric fields
+    protected static void appendPadded(StringBuilder buf, int value, int digits) {
+        if (value < 0) {
+            buf.append('-');
+            value = -value;
+        }
+        String s = Integer.toString(value);
+        for (int i = s.length(); i < digits; i++) {
+            buf.append('0');
+        }
+        buf.append(s);
+    }
+}
@@ -197,7 +197,7 @@ public class GlobalFunctions {
     
     static protected Map<Object, Node> bNodes;
     
-    public static  ValueNode bnodeFor(Object key) {
+    public static synchronized ValueNode bnodeFor(Object key) {
         if (bNodes == null) {
             bNodes = new HashMap<Object, Node>();
         }
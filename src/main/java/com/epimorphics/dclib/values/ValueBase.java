@@ -44,6 +44,13 @@ import com.epimorphics.util.NameUtils;
  */
 public abstract class ValueBase<T> implements Value {
     
+    public static final int MAX_REGEX_CACHE = 1000;
+    
+    protected static final BoundedCache<String, Pattern> regexCache = new BoundedCache<>(MAX_REGEX_CACHE);
+    
+    protected static final Pattern CLEAN_SEGMENT_PATTERN = Pattern.compile("[^@$a-zA-Z0-9\\.~]+");
+    protected static final Pattern UNDERSCORE_PATTERN = Pattern.compile("_");
+    
     protected T value;
     
     public ValueBase(T value) {
@@ -182,7 +189,7 @@ public abstract class ValueBase<T> implements Value {
                 throw new NullResult(msg);
             }
         }
-        source.enrich(proc.getOutputStream(), n);
+        proc.enrich(source, n);
         return new ValueNode(n);
     }
     
@@ -193,7 +200,7 @@ public abstract class ValueBase<T> implements Value {
         if (n == null) {
             throw new MatchFailed("Value '" + value + "' not found in source " + mapsource);
         }
-        source.enrich(proc.getOutputStream(), n);
+        proc.enrich(source, n);
         return new ValueNode(n);
     }
     
@@ -203,7 +210,7 @@ public abstract class ValueBase<T> implements Value {
             MapSource source = proc.getDataContext().getSource(mapsource);
             Node n = source.lookup(toString());
             if (n != null) {
-                source.enrich(proc.getOutputStream(), n);
+                proc.enrich(source, n);
                 return new ValueNode(n);
             }
         }
@@ -224,7 +231,7 @@ public abstract class ValueBase<T> implements Value {
         Value[] values = new Value[n.size()];
         int i = 0;
         for (Node node : n) {
-        	source.enrich(proc.getOutputStream(), node);
+        	proc.enrich(source, node);
         	values[i] = new ValueNode(node);
         	i++;
 		}
@@ -257,7 +264,7 @@ public abstract class ValueBase<T> implements Value {
     
     public Value toCleanSegment() {
         String seg = toString().toLowerCase().replace("'", "");
-        seg =  seg.replaceAll("[^@$a-zA-Z0-9\\.~]+", "-");
+        seg =  CLEAN_SEGMENT_PATTERN.matcher(seg).replaceAll("-");
         if (seg.endsWith("-")) {
             seg = seg.substring(0, seg.length()-1);
         }
@@ -265,7 +272,7 @@ public abstract class ValueBase<T> implements Value {
     }
     
     public Value toSegment(String repl) {
-        return wrap( NameUtils.safeName(toString()).replaceAll("_", repl) );
+        return wrap( UNDERSCORE_PATTERN.matcher( NameUtils.safeName(toString()) ).replaceAll(repl) );
     }
     
     public Value trim() {
@@ -281,11 +288,11 @@ public abstract class ValueBase<T> implements Value {
     }
 
     public Value replaceAll(String regex, String replacement) {
-        return wrap( toString().replaceAll(regex, replacement) );
+        return wrap( compileRegex(regex).matcher(toString()).replaceAll(replacement) );
     }
 
     public Value regex(String regex) {
-        Matcher m = Pattern.compile(regex).matcher(toString());
+        Matcher m = compileRegex(regex).matcher(toString());
         if (m.matches()) {
             if (m.groupCount() > 0) {
                 return wrap( m.group(1));
@@ -298,7 +305,15 @@ public abstract class ValueBase<T> implements Value {
     }
     
     public boolean matches(String regex) {
-        return toString().matches(regex);
+        return compileRegex(regex).matcher(toString()).matches();
+    }
+    
+    /**
+     * Return the compiled form of a regex used by a value function. Template regexes
+     * are constants so the compiled patterns are shared across all values and rows.
+     */
+    public static Pattern compileRegex(String regex) {
+        return regexCache.computeIfAbsent(regex, Pattern::compile);
     }
     
     public Value lastSegment() {
@@ -10,6 +10,7 @@
 package com.epimorphics.dclib.values;
 
 import java.util.Calendar;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import org.apache.jena.datatypes.RDFDatatype;
@@ -21,8 +22,6 @@ import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
-import org.apache.jena.riot.system.StreamRDF;
-import org.apache.jena.util.iterator.ExtendedIterator;
 import org.apache.jena.vocabulary.XSD;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -36,6 +35,7 @@ import com.epimorphics.dclib.framework.ConverterProcess;
 import com.epimorphics.govData.util.BritishCalendar;
 import com.epimorphics.govData.util.CalendarDay;
 import com.epimorphics.govData.util.CalendarInstant;
+import com.epimorphics.govData.util.CalendarTable;
 import com.epimorphics.govData.util.CalendarUtils;
 import com.epimorphics.govData.util.CalendarWeek;
 import com.epimorphics.govData.util.CalendarYear;
@@ -46,6 +46,10 @@ import com.epimorphics.util.EpiException;
  */
 public class ValueDate extends ValueNode implements Value {
     
+    public static final int MAX_REFTIME_CACHE = 10000;
+    
+    protected static final BoundedCache<String, RefTimeRepresentation> reftimeCache = new BoundedCache<>(MAX_REFTIME_CACHE);
+    
     protected DateTime jdt;
     protected RefTimeRepresentation reftime;
     
@@ -90,6 +94,8 @@ public class ValueDate extends ValueNode implements Value {
     protected static final Pattern GYEARMONTH_PATTERN = Pattern.compile( String.format("%s(%s)?", GYM_BLOCK, TZONE_BLOCK) );
     protected static final Pattern ANYDATE_PATTERN = Pattern.compile( String.format("-?(%sT%s|%s|%s|%s)(%s)?", DATE_BLOCK, TIME_BLOCK, DATE_BLOCK, TIME_BLOCK, GYM_BLOCK, TZONE_BLOCK) );
     
+    protected static final Pattern FRACTIONAL_SECONDS = Pattern.compile("\\.[0-9]*$");
+    
     protected static final DateTimeFormatter DATETIME_FMT = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss");
     protected static final DateTimeFormatter DATETIME_TZ_FMT = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ssZZZ").withOffsetParsed();
     protected static final DateTimeFormatter DATETIME_FMT_MS = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
@@ -114,20 +120,11 @@ public class ValueDate extends ValueNode implements Value {
      * @return A ValueDate containing a legal RDF literal of the given time, or a ValueNull if non of the parse options worked.
      */
     public static Value parse(String lex, String format, String typeURI) {
-        for(String fmt : format.split("\\|")) {
-            try {
-                boolean withTZ = fmt.contains("Z");
-                DateTimeFormatter p = DateTimeFormat.forPattern(fmt);
-                if (withTZ) {
-                    p = p.withOffsetParsed();
-                }
-                DateTime time = p.parseDateTime(lex);
-                return fromDateTime(time, typeURI, withTZ);
-            } catch(Exception e) {
-                // Ignore and loop round to try the next pattern
-            }
+        String formatted = DateFormatParser.forFormat(format).parse(lex, typeURI);
+        if (formatted == null) {
+            return new ValueNull();
         }
-        return new ValueNull();
+        return new ValueDate( NodeFactory.createLiteralDT(formatted, TypeMapper.getInstance().getSafeTypeByName(typeURI)) );
     }
     
     protected static Value fromDateTime(DateTime time, String typeURI, boolean withTZ) {
@@ -267,18 +264,29 @@ public class ValueDate extends ValueNode implements Value {
     
     protected RefTimeRepresentation getRefTime() {
         if (reftime == null) {
-            reftime = new RefTimeRepresentation(getXSDDateTime(), value.getLiteralDatatype());
-            injectRefTimeTriples();
+            reftime = refTimeFor(value);
         }
+        injectRefTimeTriples();
         return reftime;
     }
     
     protected void injectRefTimeTriples() {
-        StreamRDF out = ConverterProcess.get().getOutputStream();
-        ExtendedIterator<Triple> it = getRefTime().getModel().getGraph().find(null, null, null);
-        while (it.hasNext()) {
-            out.triple(it.next());
-        }
+        ConverterProcess.get().describeOnce(reftime.getRepresentation(), reftime.getTriples());
+    }
+    
+    /**
+     * Return the reference time representation of a date literal, shared
+     * between all values and processes with the same lexical form and type
+     */
+    protected static RefTimeRepresentation refTimeFor(Node date) {
+        String key = date.getLiteralLexicalForm() + "^^" + date.getLiteralDatatypeURI();
+        return reftimeCache.computeIfAbsent(key, k -> {
+            Object val = date.getLiteralValue();
+            if ( !(val instanceof XSDDateTime) ) {
+                throw new EpiException("Not a date/time node");
+            }
+            return new RefTimeRepresentation((XSDDateTime)val, date.getLiteralDatatype(), date.getLiteralLexicalForm());
+        });
     }
     
     public ValueNumber diffMilliSeconds(ValueDate other) {
@@ -406,25 +414,48 @@ public class ValueDate extends ValueNode implements Value {
         return new ValueString(result);
     }
     
-    public class RefTimeRepresentation {
-        XSDDateTime time;
-        BritishCalendar bcal = null;
-        Model model = ModelFactory.createDefaultModel();
-        
-        Node week;
-        Node ref = null;
+    /**
+     * The reference time URIs for a date together with the triples describing them.
+     * Immutable, so may be shared between conversions.
+     */
+    public static class RefTimeRepresentation {
+        protected final List<Triple> triples;
+        protected final Node week;
+        protected final Node ref;
         
-        public RefTimeRepresentation(XSDDateTime time, RDFDatatype type) {
-            this.time = time;
+        public RefTimeRepresentation(XSDDateTime time, RDFDatatype type, String lex) {
+            Model model = ModelFactory.createDefaultModel();
+            BritishCalendar bcal = null;
+            Node ref = null;
             int i_woy_year = 0;
             int i_woy_week = 0;
             
-            if (type.equals(XSDDatatype.XSDdateTime)) {
+            boolean tabled = false;
+            if (type.equals(XSDDatatype.XSDdateTime) && time.getHours() < 24 || type.equals(XSDDatatype.XSDdate)) {
+                CalendarTable table = CalendarTable.getDefault();
+                tabled = table != null && table.isBritishDay(time.getYears(), time.getMonths(), time.getDays());
+            }
+            
+            if (tabled) {
+                // Calendar facts from the precomputed table
+                int year = time.getYears(), moy = time.getMonths(), dom = time.getDays();
+                i_woy_year = CalendarUtils.getWeekOfYearYear(year, moy, dom);
+                i_woy_week = CalendarUtils.getWeekOfYear(year, moy, dom);
+                if (type.equals(XSDDatatype.XSDdateTime)) {
+                    ref = NodeFactory.createURI("http://reference.data.gov.uk/id/gregorian-instant/" + FRACTIONAL_SECONDS.matcher(lex).replaceFirst(""));
+                    new CalendarInstant(model, year, moy, dom, time.getHours(), time.getMinutes(), time.getFullSeconds(), true);
+                } else {
+                    ref = NodeFactory.createURI("http://reference.data.gov.uk/id/day/" + lex);
+                }
+                new CalendarDay(model, year, moy, dom, true);
+                new CalendarWeek(model, i_woy_year, i_woy_week, false, false);
+                
+            } else if (type.equals(XSDDatatype.XSDdateTime)) {
                 bcal = new BritishCalendar(
                         time.getYears(), time.getMonths()-1, time.getDays(), 
                         time.getHours(), time.getMinutes(), time.getFullSeconds() );
                 // Remove any trailing fractional seconds if present
-                ref = NodeFactory.createURI("http://reference.data.gov.uk/id/gregorian-instant/" + value.getLiteralLexicalForm().replaceAll("\\.[0-9]*$", ""));
+                ref = NodeFactory.createURI("http://reference.data.gov.uk/id/gregorian-instant/" + FRACTIONAL_SECONDS.matcher(lex).replaceFirst(""));
                 i_woy_year = CalendarUtils.getWeekOfYearYear(bcal);
                 i_woy_week = bcal.get(Calendar.WEEK_OF_YEAR);
                 new CalendarInstant(model, bcal, true);       
@@ -434,7 +465,7 @@ public class ValueDate extends ValueNode implements Value {
             } else if (type.equals(XSDDatatype.XSDdate)) {
                 bcal = new BritishCalendar(
                         time.getYears(), time.getMonths()-1, time.getDays()); 
-                ref = NodeFactory.createURI("http://reference.data.gov.uk/id/day/" + value.getLiteralLexicalForm());
+                ref = NodeFactory.createURI("http://reference.data.gov.uk/id/day/" + lex);
                 i_woy_year = CalendarUtils.getWeekOfYearYear(bcal);
                 i_woy_week = bcal.get(Calendar.WEEK_OF_YEAR);
                 new CalendarDay(model, bcal, true);
@@ -443,18 +474,31 @@ public class ValueDate extends ValueNode implements Value {
             } else {
                 ref = NodeFactory.createURI("http://reference.data.gov.uk/id/year/" + time.getYears());
             }
+            this.ref = ref;
             
             week = NodeFactory.createURI("http://reference.data.gov.uk/id/week/"
                     + String.format("%04d", i_woy_year) 
                     + "-W" + String.format("%02d", i_woy_week));
             
             new CalendarYear(model, time.getYears(), false, false);
+            triples = List.copyOf( model.getGraph().find().toList() );
         }
         
+        /**
+         * Return a new model containing the reference time triples
+         */
         public Model getModel() {
+            Model model = ModelFactory.createDefaultModel();
+            for (Triple t : triples) {
+                model.getGraph().add(t);
+            }
             return model;
         }
         
+        public List<Triple> getTriples() {
+            return triples;
+        }
+        
         public Node getRepresentation() {
             return ref;
         }
@@ -22,6 +22,8 @@ public class ValueFactory {
     public static Value asValue(String string) {
         if (string == null || string.isEmpty()) {
             return new ValueNull();
+        } else if ( ! ColumnTypes.couldBeTyped(string) ) {
+            return new ValueString(string);
         } else if (ValueNumber.isNumber(string)) {
             return new ValueNumber(string);
         } else if (ValueDate.isDate(string)) {
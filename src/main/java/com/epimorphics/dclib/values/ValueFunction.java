@@ -28,10 +28,24 @@ public class ValueFunction implements Value {
         this.script = script;
     }
 
+    public Script getScript() {
+        return script;
+    }
+
     public void setBindingEnv(BindingEnv env) {
         this.env = env;
     }
     
+    /**
+     * Return a copy of this function bound to the given environment,
+     * leaving this (possibly shared) instance untouched.
+     */
+    public ValueFunction bind(BindingEnv env) {
+        ValueFunction f = new ValueFunction(script);
+        f.env = env;
+        return f;
+    }
+    
     @Override
     public boolean isNull() {
         return false;
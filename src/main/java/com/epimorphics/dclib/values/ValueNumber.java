@@ -35,6 +35,14 @@ public class ValueNumber extends ValueBase<Number> implements Value {
         lexical = value;
     }
     
+    /**
+     * Construct from an already parsed number, retaining the original lexical form
+     */
+    public ValueNumber(Number value, String lexical) {
+        super(value);
+        this.lexical = lexical;
+    }
+    
     public static Number stringToNumber(String string) {
         if (string != null) {
             if (INTEGER_PATTERN.matcher(string).matches()) {
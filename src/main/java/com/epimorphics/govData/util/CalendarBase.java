@@ -85,12 +85,21 @@ public class CalendarBase {
 	protected static void addCalendarOrdinals(Resource res, int year, int moy, int dom) {
 		res.addProperty(INTERVALS.ordinalDayOfMonth, 	  Integer.toString(dom), XSDDatatype.XSDinteger);
 
-		GregorianOnlyCalendar cal = new GregorianOnlyCalendar(Locale.UK);
-		cal.set(year, moy-1,dom);
-		int woy = cal.get(Calendar.WEEK_OF_YEAR);
-		int dow = CalendarUtils.calendarDayToOrdinalDay(cal.get(Calendar.DAY_OF_WEEK));
-		int doy =  cal.get(Calendar.DAY_OF_YEAR);
-		int woy_year = CalendarUtils.getWeekOfYearYear(cal);
+		int woy, dow, doy, woy_year;
+		CalendarTable table = CalendarTable.getDefault();
+		if (table != null && table.hasDay(year, moy, dom)) {
+			woy = table.weekOfYear(year, moy, dom);
+			dow = table.dayOfWeek(year, moy, dom);
+			doy = table.dayOfYear(year, moy, dom);
+			woy_year = table.weekOfYearYear(year, moy, dom);
+		} else {
+			GregorianOnlyCalendar cal = new GregorianOnlyCalendar(Locale.UK);
+			cal.set(year, moy-1,dom);
+			woy = cal.get(Calendar.WEEK_OF_YEAR);
+			dow = CalendarUtils.calendarDayToOrdinalDay(cal.get(Calendar.DAY_OF_WEEK));
+			doy =  cal.get(Calendar.DAY_OF_YEAR);
+			woy_year = CalendarUtils.getWeekOfYearYear(cal);
+		}
 
 		addCalendarWoyOrdinals(res, woy_year, woy);
 
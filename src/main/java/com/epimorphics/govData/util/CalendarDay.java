@@ -34,9 +34,10 @@ import org.apache.jena.vocabulary.RDFS;
 public class CalendarDay extends CalendarInterval {
 	
 	public CalendarDay(Model m, BritishCalendar bcal, boolean withoutLabels) {
-		int year = bcal.get(Calendar.YEAR);
-		int moy  = bcal.get(Calendar.MONTH)-Calendar.JANUARY+1;
-		int dom	 = bcal.get(Calendar.DAY_OF_MONTH);
+		this(m, bcal.get(Calendar.YEAR), bcal.get(Calendar.MONTH)-Calendar.JANUARY+1, bcal.get(Calendar.DAY_OF_MONTH), withoutLabels);
+	}
+
+	public CalendarDay(Model m, int year, int moy, int dom, boolean withoutLabels) {
 		Resource r_day = createResourceAndLabels(m, year, moy, dom, withoutLabels);
 		thisResource = r_day;
 		
@@ -44,6 +45,24 @@ public class CalendarDay extends CalendarInterval {
 		if(m.contains(r_day,TIME.hasDurationDescription))
 			return;
 
+		CalendarTable table = CalendarTable.getDefault();
+		int next = CalendarTable.nextDay(year, moy, dom);
+		if (table != null && table.isBritishDay(year, moy, dom) && table.isBritishDay(next / 10000, (next / 100) % 100, next % 100)) {
+			addCalendarOrdinals(r_day, year, moy, dom);
+			
+			m.add(r_day, INTERVALS.hasXsdDurationDescription, oneDay);
+			m.add(r_day, TIME.hasDurationDescription, INTERVALS.one_day);
+
+			startInstant = new CalendarInstant(m, year, moy, dom, 0, 0, 0, withoutLabels);
+			m.add(r_day, TIME.hasBeginning, startInstant.getResource());
+
+			setDayOfWeek(m, r_day, table.dayOfWeek(year, moy, dom) % 7 + 1);
+
+			endInstant = new CalendarInstant(m, next / 10000, (next / 100) % 100, next % 100, 0, 0, 0, withoutLabels);
+			m.add(r_day, TIME.hasEnd, endInstant.getResource());
+			return;
+		}
+
 //		m.add(r_day, RDF.type, SCOVO.Dimension);
 		BritishCalendar cal = new BritishCalendar(Locale.UK);
 		cal.setLenient(false);
@@ -36,10 +36,38 @@ import org.apache.jena.vocabulary.RDFS;
 public class CalendarInstant extends CalendarBase {
 	
 	public CalendarInstant(Model model, Calendar cal, boolean withoutLabels) {
+		init(model, cal, withoutLabels);
+	}
+
+	/**
+	 * Instant at a time in the British calendar, looked up in the calendar
+	 * table when it covers the day
+	 */
+	public CalendarInstant(Model model, int year, int moy, int dom, int hod, int moh, int som, boolean withoutLabels) {
+		CalendarTable table = CalendarTable.getDefault();
+		if (table != null && table.isBritishDay(year, moy, dom) && hod < 24 && moh < 60 && som < 60) {
+			init(model, CalendarUtils.toXsdDateTime(year, moy, dom, hod, moh, som), year, moy, dom, hod, moh, som, null, withoutLabels);
+		} else {
+			init(model, new BritishCalendar(year, moy-1, dom, hod, moh, som), withoutLabels);
+		}
+	}
+
+	private void init(Model model, Calendar cal, boolean withoutLabels) {
 		GregorianOnlyCalendar cal2 = new GregorianOnlyCalendar(Locale.UK);
 		cal2.setTimeInMillis(cal.getTimeInMillis());
 		String s_relPart = CalendarUtils.toXsdDateTime(cal2);
 
+		int year = cal2.get(Calendar.YEAR);
+		int moy  = cal2.get(Calendar.MONTH)+1-Calendar.JANUARY;
+		int dom  = cal2.get(Calendar.DATE);
+		int hod  = cal2.get(Calendar.HOUR_OF_DAY);
+		int moh  = cal2.get(Calendar.MINUTE);
+		int som  = cal2.get(Calendar.SECOND);
+		
+		init(model, s_relPart, year, moy, dom, hod, moh, som, cal, withoutLabels);
+	}
+
+	private void init(Model model, String s_relPart, int year, int moy, int dom, int hod, int moh, int som, Calendar cal, boolean withoutLabels) {
 		String s_instURI = CALENDAR_BASE_URI + INSTANT_ID_STEM + s_relPart;
 		if(model.containsResource(ResourceFactory.createResource(s_instURI))) {
 			thisResource = model.createResource(s_instURI);
@@ -52,16 +80,12 @@ public class CalendarInstant extends CalendarBase {
 		if(model.contains(r_inst, TIME.inXSDDateTime))
 			return;
 		
-		int year = cal2.get(Calendar.YEAR);
-		int moy  = cal2.get(Calendar.MONTH)+1-Calendar.JANUARY;
-		int dom  = cal2.get(Calendar.DATE);
-		int hod  = cal2.get(Calendar.HOUR_OF_DAY);
-		int moh  = cal2.get(Calendar.MINUTE);
-		int som  = cal2.get(Calendar.SECOND);
-		
 		addCalendarOrdinals(r_inst, year, moy, dom, hod, moh, som);
 
 		if(!withoutLabels && !model.contains(r_inst, RDFS.label)) {
+			if (cal == null) {
+				cal = new BritishCalendar(year, moy-1, dom, hod, moh, som);
+			}
 			String s_month = cal.getDisplayName(Calendar.MONTH, Calendar.LONG, Locale.UK);
 			String s_dayOfWeek = cal.getDisplayName(Calendar.DAY_OF_WEEK, Calendar.LONG, Locale.UK);
 			String s_domSuffix = getDecimalSuffix(dom);
@@ -0,0 +1,251 @@
+/******************************************************************
+ * File:        CalendarTable.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+package com.epimorphics.govData.util;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Precomputed calendar facts for each day in a range of years, so that
+ * calendar resources can be built without GregorianCalendar arithmetic.
+ * <p>
+ * Days are identified by year, month (1-12) and day of month. The week of year,
+ * week of year year, day of week and day of year held are those of the proleptic
+ * Gregorian calendar with ISO (UK) week numbering, as used for calendar ordinals.
+ * A day is a British day if it is after the year of the 1752 cut-over, so that the
+ * British calendar agrees, and has no clock change in the default time zone,
+ * so that its instants can be labelled directly. Callers fall back to
+ * calendar arithmetic for anything the table doesn't cover.
+ * </p>
+ */
+public class CalendarTable {
+
+	public static final int DEFAULT_FIRST_YEAR = 1700;
+	public static final int DEFAULT_LAST_YEAR  = 2100;
+
+	static final int DAYS_PER_YEAR  = 12 * 31;		// Index space, not all valid
+	static final int WEEKS_PER_YEAR = 54;
+	static final int CUT_OVER = 17530101;			// British weeks of 1752 are numbered around the missing days
+
+	// Packing of day entries
+	static final int WOY_MASK 		= 0x3f;
+	static final int WOY_YEAR_SHIFT = 6;		// 0 same year, 1 next year, 2 previous year
+	static final int DOW_SHIFT 		= 8;
+	static final int DOY_SHIFT 		= 11;
+	static final int VALID 			= 1 << 20;
+	static final int BRITISH 		= 1 << 21;
+
+	private static volatile CalendarTable defaultTable;
+	private static volatile boolean enabled = true;
+
+	protected final int firstYear;
+	protected final int lastYear;
+	protected final int[] days;
+	protected final int[] weekStarts;
+	protected final String zoneId;
+	protected final Locale locale;
+	protected final boolean isoWeekRulesByDefault;
+
+	/**
+	 * Return the table for the default range, or null if tables have been disabled.
+	 * The table is rebuilt if the default time zone or locale have changed.
+	 */
+	public static CalendarTable getDefault() {
+		if (!enabled) {
+			return null;
+		}
+		CalendarTable table = defaultTable;
+		if (table == null || !table.matchesDefaults()) {
+			synchronized (CalendarTable.class) {
+				table = defaultTable;
+				if (table == null || !table.matchesDefaults()) {
+					table = new CalendarTable(table == null ? DEFAULT_FIRST_YEAR : table.firstYear,
+							table == null ? DEFAULT_LAST_YEAR : table.lastYear);
+					defaultTable = table;
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Set the table to use, null to always compute calendar facts directly
+	 */
+	public static void setDefault(CalendarTable table) {
+		synchronized (CalendarTable.class) {
+			defaultTable = table;
+			enabled = table != null;
+		}
+	}
+
+	public CalendarTable(int firstYear, int lastYear) {
+		this.firstYear = firstYear;
+		this.lastYear = lastYear;
+		this.zoneId = TimeZone.getDefault().getID();
+		this.locale = Locale.getDefault(Locale.Category.FORMAT);
+		GregorianCalendar dflt = new GregorianCalendar();
+		this.isoWeekRulesByDefault = dflt.getFirstDayOfWeek() == Calendar.MONDAY && dflt.getMinimalDaysInFirstWeek() == 4;
+		int years = lastYear - firstYear + 1;
+		days = new int[years * DAYS_PER_YEAR];
+		weekStarts = new int[years * WEEKS_PER_YEAR];
+		Arrays.fill(weekStarts, -1);
+
+		GregorianOnlyCalendar cal = new GregorianOnlyCalendar(Locale.UK);
+		cal.clear();
+		cal.set(firstYear, Calendar.JANUARY, 1, 12, 0, 0);		// Midday avoids any clock change
+		GregorianCalendar local = new GregorianCalendar();
+		while (cal.get(Calendar.YEAR) <= lastYear) {
+			int year = cal.get(Calendar.YEAR);
+			int moy  = cal.get(Calendar.MONTH) + 1 - Calendar.JANUARY;
+			int dom  = cal.get(Calendar.DAY_OF_MONTH);
+			int woy  = cal.get(Calendar.WEEK_OF_YEAR);
+			int woyYear = CalendarUtils.getWeekOfYearYear(cal);
+			int dow  = CalendarUtils.calendarDayToOrdinalDay(cal.get(Calendar.DAY_OF_WEEK));
+			int doy  = cal.get(Calendar.DAY_OF_YEAR);
+
+			int entry = woy | (woyYear == year ? 0 : woyYear > year ? 1 : 2) << WOY_YEAR_SHIFT
+					| dow << DOW_SHIFT | doy << DOY_SHIFT | VALID;
+			if (pack(year, moy, dom) >= CUT_OVER && standardDay(local, year, moy, dom)) {
+				entry |= BRITISH;
+			}
+			days[index(year, moy, dom)] = entry;
+			if (dow == 1 && (entry & BRITISH) != 0 && woyYear >= firstYear && woyYear <= lastYear) {
+				weekStarts[(woyYear - firstYear) * WEEKS_PER_YEAR + woy] = pack(year, moy, dom);
+			}
+			cal.add(Calendar.DATE, 1);
+		}
+	}
+
+	// Test if the local day in the default time zone is exactly 24 hours long
+	private static boolean standardDay(GregorianCalendar local, int year, int moy, int dom) {
+		local.clear();
+		local.set(year, moy - 1, dom);
+		long start = local.getTimeInMillis();
+		local.clear();
+		local.set(year, moy - 1, dom + 1);
+		return local.getTimeInMillis() - start == 24L * 60 * 60 * 1000;
+	}
+
+	protected boolean matchesDefaults() {
+		return locale.equals( Locale.getDefault(Locale.Category.FORMAT) )
+				&& zoneId.equals( TimeZone.getDefault().getID() );
+	}
+
+	private int index(int year, int moy, int dom) {
+		return (year - firstYear) * DAYS_PER_YEAR + (moy - 1) * 31 + (dom - 1);
+	}
+
+	/**
+	 * Pack a date as a single int, yyyymmdd
+	 */
+	public static int pack(int year, int moy, int dom) {
+		return year * 10000 + moy * 100 + dom;
+	}
+
+	private int entry(int year, int moy, int dom) {
+		if (year < firstYear || year > lastYear || moy < 1 || moy > 12 || dom < 1 || dom > 31) {
+			return 0;
+		}
+		return days[index(year, moy, dom)];
+	}
+
+	/**
+	 * Test if the table holds the given Gregorian date
+	 */
+	public boolean hasDay(int year, int moy, int dom) {
+		return (entry(year, moy, dom) & VALID) != 0;
+	}
+
+	/**
+	 * Test if the table holds the given day and it is a British day, after the
+	 * cut-over and with no clock change, so that the British calendar agrees with
+	 * the table and instants in the day can be labelled directly
+	 */
+	public boolean isBritishDay(int year, int moy, int dom) {
+		return (entry(year, moy, dom) & BRITISH) != 0;
+	}
+
+	/**
+	 * Test if calendars created for the default locale use the same week numbering as the table
+	 */
+	public boolean isIsoWeekRulesByDefault() {
+		return isoWeekRulesByDefault;
+	}
+
+	public int weekOfYear(int year, int moy, int dom) {
+		return entry(year, moy, dom) & WOY_MASK;
+	}
+
+	public int weekOfYearYear(int year, int moy, int dom) {
+		switch ((entry(year, moy, dom) >> WOY_YEAR_SHIFT) & 3) {
+		case 1: return year + 1;
+		case 2: return year - 1;
+		default: return year;
+		}
+	}
+
+	/**
+	 * Ordinal day of week, Monday is 1
+	 */
+	public int dayOfWeek(int year, int moy, int dom) {
+		return (entry(year, moy, dom) >> DOW_SHIFT) & 7;
+	}
+
+	public int dayOfYear(int year, int moy, int dom) {
+		return (entry(year, moy, dom) >> DOY_SHIFT) & 0x1ff;
+	}
+
+	/**
+	 * Return the Monday starting the given week, packed as yyyymmdd, or -1 if the week
+	 * is not in the table or doesn't start on a British day
+	 */
+	public int weekStart(int woyYear, int woy) {
+		if (woyYear < firstYear || woyYear > lastYear || woy < 1 || woy >= WEEKS_PER_YEAR) {
+			return -1;
+		}
+		return weekStarts[(woyYear - firstYear) * WEEKS_PER_YEAR + woy];
+	}
+
+	/**
+	 * Return the day after the given British day, packed as yyyymmdd
+	 */
+	public static int nextDay(int year, int moy, int dom) {
+		if (dom < daysInMonth(year, moy)) {
+			return pack(year, moy, dom + 1);
+		} else if (moy < 12) {
+			return pack(year, moy + 1, 1);
+		} else {
+			return pack(year + 1, 1, 1);
+		}
+	}
+
+	/**
+	 * Return the day a number of days after the given British day, packed as yyyymmdd
+	 */
+	public static int addDays(int packed, int n) {
+		for (int i = 0; i < n; i++) {
+			packed = nextDay(packed / 10000, (packed / 100) % 100, packed % 100);
+		}
+		return packed;
+	}
+
+	static int daysInMonth(int year, int moy) {
+		switch (moy) {
+		case 2:
+			return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+		case 4: case 6: case 9: case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+}
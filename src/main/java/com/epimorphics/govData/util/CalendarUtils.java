@@ -55,6 +55,27 @@ public class CalendarUtils {
 //		return iso8601dateTimeformat.format(cal.getTimeInMillis());
 	}
 	
+	/**
+	 * Format a British calendar time known to be after the Gregorian cut-over
+	 */
+	public static String toXsdDateTime(int year, int moy, int dom, int hod, int moh, int som) {
+		StringBuilder sb = new StringBuilder(19);
+		pad(sb, year, 4).append('-');
+		pad(sb, moy, 2).append('-');
+		pad(sb, dom, 2).append('T');
+		pad(sb, hod, 2).append(':');
+		pad(sb, moh, 2).append(':');
+		return pad(sb, som, 2).toString();
+	}
+
+	private static StringBuilder pad(StringBuilder sb, int value, int width) {
+		String digits = Integer.toString(value);
+		for (int i = digits.length(); i < width; i++) {
+			sb.append('0');
+		}
+		return sb.append(digits);
+	}
+
 	/*
 	public static String toXsdDateTime(int yr, int moy, int dom, int hod, int moh, int som) {
 		GregorianOnlyCalendar cal = new GregorianOnlyCalendar(yr, moy+Calendar.JANUARY-1, dom, hod, moh, som);
@@ -128,6 +149,30 @@ public class CalendarUtils {
 		return y;
 	}
 	
+	/**
+	 * Week of year year of a day in the British calendar, numbering weeks by the
+	 * default locale as a BritishCalendar for the day would
+	 */
+	public static int getWeekOfYearYear(int year, int moy, int dom) {
+		CalendarTable table = CalendarTable.getDefault();
+		if (table != null && table.isIsoWeekRulesByDefault() && table.isBritishDay(year, moy, dom)) {
+			return table.weekOfYearYear(year, moy, dom);
+		}
+		return getWeekOfYearYear(new BritishCalendar(year, moy-1, dom));
+	}
+
+	/**
+	 * Week of year of a day in the British calendar, numbering weeks by the
+	 * default locale as a BritishCalendar for the day would
+	 */
+	public static int getWeekOfYear(int year, int moy, int dom) {
+		CalendarTable table = CalendarTable.getDefault();
+		if (table != null && table.isIsoWeekRulesByDefault() && table.isBritishDay(year, moy, dom)) {
+			return table.weekOfYear(year, moy, dom);
+		}
+		return new BritishCalendar(year, moy-1, dom).get(Calendar.WEEK_OF_YEAR);
+	}
+	
 	/*
 	public static boolean inCutOverAnomaly(GregorianCalendar cal) {
         int month = cal.get(Calendar.MONTH)+1-Calendar.JANUARY;
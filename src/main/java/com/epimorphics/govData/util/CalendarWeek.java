@@ -40,6 +40,24 @@ public class CalendarWeek extends CalendarInterval {
 		Resource r_week = createResourceAndLabels(m, year, woy, withoutLabels);
 		thisResource = r_week;
 
+		CalendarTable table = CalendarTable.getDefault();
+		int start = table == null || withNeighbours ? -1 : table.weekStart(year, woy);
+		int end = start == -1 ? -1 : CalendarTable.addDays(start, 7);
+		if (end != -1 && table.isBritishDay(end / 10000, (end / 100) % 100, end % 100)) {
+			if(m.contains(r_week,TIME.hasDurationDescription))
+				return;
+			
+			addCalendarWoyOrdinals(r_week, year, woy);
+			r_week.addProperty(INTERVALS.hasXsdDurationDescription, oneWeek);
+			r_week.addProperty(TIME.hasDurationDescription, INTERVALS.one_week );
+
+			startInstant = new CalendarInstant(m, start / 10000, (start / 100) % 100, start % 100, 0, 0, 0, withoutLabels);
+			m.add(r_week, TIME.hasBeginning, startInstant.getResource());
+			endInstant = new CalendarInstant(m, end / 10000, (end / 100) % 100, end % 100, 0, 0, 0, withoutLabels);
+			m.add(r_week, TIME.hasEnd, endInstant.getResource());
+			return;
+		}
+
 		BritishCalendar cal = new BritishCalendar(Locale.UK);
 		CalendarUtils.setWeekOfYear(year, woy , cal);
 
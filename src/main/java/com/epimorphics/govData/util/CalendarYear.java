@@ -49,6 +49,19 @@ public class CalendarYear extends CalendarInterval {
 		if(model.contains(r_year, INTERVALS.hasXsdDurationDescription))
 			return;
 		
+		CalendarTable table = CalendarTable.getDefault();
+		if (table != null && table.isBritishDay(year, 1, 1) && table.isBritishDay(year + 1, 1, 1)) {
+			addCalendarOrdinals(r_year, year);
+			r_year
+				.addProperty(INTERVALS.hasXsdDurationDescription, oneYear)
+				.addProperty(TIME.hasDurationDescription, INTERVALS.one_year);
+			startInstant = new CalendarInstant(model, year, 1, 1, 0, 0, 0, withoutLabels);
+			model.add(r_year, TIME.hasBeginning, startInstant.getResource());
+			endInstant = new CalendarInstant(model, year + 1, 1, 1, 0, 0, 0, withoutLabels);
+			model.add(r_year, TIME.hasEnd, endInstant.getResource());
+			return;
+		}
+		
 //		model.add(r_year, RDF.type, SCOVO.Dimension);
 		BritishCalendar cal = new BritishCalendar(year, Calendar.JANUARY, 1, 0, 0, 0);	
 		cal.setLenient(false);
@@ -9,17 +9,28 @@
 
 package com.epimorphics.dclib.framework;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RDFLanguages;
 import org.apache.jena.riot.RDFParserBuilder;
+import org.apache.jena.riot.system.StreamRDFBase;
 import org.junit.jupiter.api.Test;
 
+import com.epimorphics.dclib.templates.TemplateFactory;
 import com.epimorphics.rdfutil.RDFUtil;
 import com.epimorphics.tasks.SimpleProgressMonitor;
 import com.epimorphics.util.NameUtils;
 import com.epimorphics.vocabs.SKOS;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Property;
@@ -149,6 +160,57 @@ public class TestBasicConverters {
         checkAgainstExpected("test/mapping/map-rdf-sparql-test.json", "test/mapping/map-rdf-test.csv", "test/mapping/map-rdf-sparql-expected.ttl");
     }
     
+    @Test
+    public void testEnrichOnce() throws IOException {
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        Template template = TemplateFactory.templateFrom("test/mapping/map-rdf-test-root-enrich.json", dc);
+        String csv = "Label,key\n\"test 1\",key1\n\"test 1 again\",key1\n\"test 2\",key2\n";
+        ConverterProcess process = new ConverterProcess(dc, new ByteArrayInputStream( csv.getBytes(StandardCharsets.UTF_8) ));
+        process.setTemplate(template);
+        List<Triple> triples = new ArrayList<>();
+        process.setOutputStream( new StreamRDFBase() {
+            @Override
+            public void triple(Triple triple) {
+                triples.add(triple);
+            }
+        });
+        assertTrue( process.process() );
+        assertEquals(1, triples.stream().filter(t -> t.getObject().isLiteral() && t.getObject().getLiteralLexicalForm().equals("key 1")).count());
+        assertEquals(1, triples.stream().filter(t -> t.getObject().isLiteral() && t.getObject().getLiteralLexicalForm().equals("key 2")).count());
+    }
+    
+    @Test
+    public void testParallelEnrichOnce() throws IOException {
+        StringBuilder csv = new StringBuilder("Label,key\n");
+        for (int i = 0; i < 3000; i++) {
+            // key3 first appears well into the data, in a batch racing with its neighbours
+            String key = (i >= 1700 && i % 3 == 0) ? "key3" : (i % 2 == 0 ? "key1" : "key2");
+            csv.append("\"row " + i + "\"," + key + "\n");
+        }
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        Template template = TemplateFactory.templateFrom("test/mapping/map-rdf-test-root-enrich.json", dc);
+        List<Triple> serial = convertTriples(dc, template, csv.toString(), 1);
+        assertEquals(1, serial.stream().filter(t -> t.getObject().isLiteral() && t.getObject().getLiteralLexicalForm().equals("key 3")).count());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(serial, convertTriples(dc, template, csv.toString(), 4));
+        }
+    }
+    
+    private List<Triple> convertTriples(DataContext dc, Template template, String csv, int nThreads) throws IOException {
+        ConverterProcess process = new ConverterProcess(dc, new ByteArrayInputStream( csv.getBytes(StandardCharsets.UTF_8) ));
+        process.setTemplate(template);
+        process.setThreads(nThreads);
+        List<Triple> triples = new ArrayList<>();
+        process.setOutputStream( new StreamRDFBase() {
+            @Override
+            public void triple(Triple triple) {
+                triples.add(triple);
+            }
+        });
+        assertTrue( process.process() );
+        return triples;
+    }
+    
     @Test
     public void testBadURIs() throws IOException {
         expectError("test/validation/baduris-template1.json", "test/test-map.csv");
@@ -172,6 +234,44 @@ public class TestBasicConverters {
         checkAgainstExpected("test/dates/date5.yaml", "test/dates/date.csv", "test/dates/date5.ttl");
     }
     
+    @Test
+    public void testRefTimeOnce() throws IOException {
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        Template template = TemplateFactory.templateFrom("test/dates/reftime.yaml", dc);
+        String csv = "id,date\n01,2014-03-10\n02,2014-03-10\n03,2014-03-11\n04,2014-03-10\n";
+        ConverterProcess process = new ConverterProcess(dc, new ByteArrayInputStream( csv.getBytes(StandardCharsets.UTF_8) ));
+        process.setTemplate(template);
+        List<Triple> triples = new ArrayList<>();
+        process.setOutputStream( new StreamRDFBase() {
+            @Override
+            public void triple(Triple triple) {
+                triples.add(triple);
+            }
+        });
+        assertTrue( process.process() );
+        Node day = NodeFactory.createURI("http://reference.data.gov.uk/id/day/2014-03-10");
+        Node week = NodeFactory.createURI("http://reference.data.gov.uk/id/week/2014-W11");
+        assertTrue( triples.contains( Triple.create(NodeFactory.createURI("http://example.org/02"), DCTerms.date.asNode(), day) ) );
+        assertTrue( triples.stream().anyMatch(t -> t.getSubject().equals(week)) );
+        assertTrue( triples.stream().anyMatch(t -> t.getSubject().equals(day) && t.getPredicate().equals(RDF.type.asNode())) );
+        List<Triple> dayTriples = triples.stream().filter(t -> t.getSubject().equals(day)).toList();
+        assertEquals( new HashSet<>(dayTriples).size(), dayTriples.size() );
+    }
+    
+    @Test
+    public void testParallelRefTimeOnce() throws IOException {
+        StringBuilder csv = new StringBuilder("id,date\n");
+        for (int i = 0; i < 3000; i++) {
+            csv.append(i + ",2014-03-" + (10 + (i * 7) % 19) + "\n");
+        }
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        Template template = TemplateFactory.templateFrom("test/dates/reftime.yaml", dc);
+        List<Triple> serial = convertTriples(dc, template, csv.toString(), 1);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(serial, convertTriples(dc, template, csv.toString(), 4));
+        }
+    }
+    
     @Test
     public void testPrefixDeclaration() throws IOException {
         checkAgainstExpected("test/composite/prefix-composite.json", "test/test-map.csv", "test/composite/prefix-composite-expected.ttl");
@@ -233,6 +333,49 @@ public class TestBasicConverters {
         checkAgainstExpected("test/geo/test.yaml", "test/geo/test.csv", "test/geo/test.ttl");
     }
     
+    @Test
+    public void testColumnProjection() throws IOException {
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        Template template = TemplateFactory.templateFrom("test/simple-skos-template.json", dc);
+        Set<String> vars = new HashSet<>();
+        assertTrue( template.collectVariables(vars, new HashSet<>()) );
+        assertTrue( vars.containsAll( List.of("$base", "notation", "label", "description") ) );
+        assertFalse( vars.contains("extra") );
+        
+        String csv = "notation,extra,label\n1,\"skipped, \"\"quoted\"\"\",Entry 1\n2,not\"quoted,Entry 2\n";
+        for (boolean project : new boolean[]{ true, false }) {
+            ConverterProcess process = new ConverterProcess(dc, new ByteArrayInputStream( csv.getBytes(StandardCharsets.UTF_8) ));
+            process.getEnv().put("$base", "http://example.com/");
+            process.setTemplate(template);
+            process.setProjectColumns(project);
+            assertTrue( process.process() );
+            Model m = process.getModel();
+            assertTrue( m.contains(m.getResource("http://example.com/1"), SKOS.prefLabel, "Entry 1") );
+            assertTrue( m.contains(m.getResource("http://example.com/2"), SKOS.prefLabel, "Entry 2") );
+        }
+    }
+    
+    @Test
+    public void testProfile() throws IOException {
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        Template template = TemplateFactory.templateFrom("test/simple-skos-template.json", dc);
+        String csv = "notation,label\n1,Entry 1\n2,Entry 2\n3,Entry 3\n";
+        ConverterProcess process = new ConverterProcess(dc, new ByteArrayInputStream( csv.getBytes(StandardCharsets.UTF_8) ));
+        process.getEnv().put("$base", "http://example.com/");
+        process.setTemplate(template);
+        ConversionProfile profile = new ConversionProfile();
+        process.setMetricsListener(profile);
+        assertTrue( process.process() );
+
+        ConversionProfile.Stats stats = profile.getStats(template);
+        assertNotNull(stats);
+        assertEquals(3, stats.getCount());
+        assertEquals(0, stats.getErrors());
+        assertTrue( stats.getTriples() > 0 && stats.getTriples() <= process.getModel().size() );
+        assertTrue( profile.getStats().stream().anyMatch(s -> s.getLabel().startsWith("Pattern") && s.getCount() == 3) );
+        assertTrue( profile.report().contains("Template") );
+    }
+
     @Test
     public void testGuards() throws IOException {
         checkAgainstExpected("test/composite/guardTest.yaml", "test/composite/guardTest.csv", "test/composite/guardTest.ttl");
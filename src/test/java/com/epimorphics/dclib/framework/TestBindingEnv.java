@@ -9,9 +9,24 @@
 
 package com.epimorphics.dclib.framework;
 
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
+import com.epimorphics.dclib.sources.CSVRecord;
+import com.epimorphics.dclib.sources.CSVTokenizer;
+import com.epimorphics.dclib.values.ColumnTypes;
+import com.epimorphics.dclib.values.Value;
+import com.epimorphics.dclib.values.ValueFactory;
+import com.epimorphics.dclib.values.ValueNull;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 public class TestBindingEnv {
@@ -30,6 +45,85 @@ public class TestBindingEnv {
         assertEquals("bar",   child.get("key2"));
         assertEquals("foo",   parent.get("key1"));
     }
+    
+    @Test
+    public void testRowEnv() {
+        BindingEnv global = new BindingEnv();
+        global.put("g", "global");
+        global.put("a", "shadowed");
+        
+        RowSchema schema = new RowSchema("a", "b", "c");
+        RowEnv row = new RowEnv(schema, new Object[]{"1", new ValueNull(), null}, global);
+        assertEquals("1", row.get("a"));
+        assertNull(row.get("b"));
+        assertNull(row.get("c"));
+        assertEquals("global", row.get("g"));
+        assertTrue(row.containsKey("b"));
+        assertFalse(row.containsKey("c"));
+        assertEquals(Arrays.asList("a", "b"), List.copyOf(row.keySet()));
+        
+        row.put("c", "3");
+        row.put("extra", "x");
+        assertEquals("3", row.get("c"));
+        assertEquals("x", row.get("extra"));
+        assertEquals(4, row.size());
+        
+        List<String> bound = Arrays.asList("d", "a");
+        BindingEnv env = row.extend(bound);
+        assertTrue(env instanceof RowEnv);
+        assertTrue( ((RowEnv)env).getSchema() == schema.extend(bound) );
+        env.put("a", "override");
+        env.put("d", "4");
+        assertEquals("override", env.get("a"));
+        assertEquals("4", env.get("d"));
+        assertEquals("x", env.get("extra"));
+        assertEquals("1", row.get("a"));
+        assertNull(row.get("d"));
+    }
+    
+    @Test
+    public void testLazyRow() throws Exception {
+        String[] cells = {"12", "2014-01-05", "foo", "-3.5", "", "2014-02", "1e3", "12:30:00Z", "007x", "2014-01-05T10:00:00"};
+        RowSchema schema = new RowSchema("col");
+        ColumnTypes types = new ColumnTypes(1);
+        for (String first : cells) {
+            for (String cell : cells) {
+                // Prime the column memo with one kind then check a different kind is still parsed correctly
+                lazyValue(schema, types, first);
+                Object expected = ValueFactory.asValue(cell);
+                Object actual = lazyValue(schema, types, cell);
+                if (expected instanceof ValueNull) {
+                    assertNull(actual);
+                } else {
+                    assertEquals(expected.getClass(), actual.getClass());
+                    assertEquals(((Value)expected).asNode(), ((Value)actual).asNode());
+                }
+            }
+        }
+        
+        RowEnv row = new RowEnv(schema, recordOf("42"), 1, types, null);
+        assertTrue(row.containsKey("col"));
+        BindingEnv ext = row.extend(List.of("x"));
+        assertEquals(row.get("col"), ext.get("col"));
+        
+        // Cells parsed in an extension are shared with the row, bindings are not
+        row = new RowEnv(schema, recordOf("42"), 1, types, null);
+        ext = row.extend(List.of("x"));
+        BindingEnv ext2 = ext.extend(List.of("y"));
+        assertSame(ext.get("col"), row.get("col"));
+        ext2.put("col", "rebound");
+        assertEquals("rebound", ext2.get("col"));
+        assertSame(row.get("col"), ext.get("col"));
+        assertEquals("rebound", ext2.extend(List.of("z")).get("col"));
+    }
+    
+    private Object lazyValue(RowSchema schema, ColumnTypes types, String cell) throws Exception {
+        return new RowEnv(schema, recordOf(cell), 1, types, null).get("col");
+    }
+    
+    private CSVRecord recordOf(String cell) throws Exception {
+        return new CSVTokenizer(new StringReader(cell + "\n")).next();
+    }
  
 
 }
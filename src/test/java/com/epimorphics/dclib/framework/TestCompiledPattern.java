@@ -0,0 +1,53 @@
+/******************************************************************
+ * File:        TestCompiledPattern.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs all the pattern tests again using compiled expressions
+ */
+public class TestCompiledPattern extends TestPattern {
+
+    @BeforeEach
+    public void useCompiled() {
+        proc.setCompiledPatterns(true);
+    }
+    
+    @Test
+    public void testCompiledForms() {
+        assertNotNull( compile("a") );
+        assertNotNull( compile("A.asString().toSegment() \n\r .toLowerCase()") );
+        assertNotNull( compile("round(f).format('%03d')") );
+        assertNotNull( compile("str.digest('md5', true)") );
+        assertNotNull( compile("$row.number") );
+        
+        assertNull( compile("i.value - 2") );
+        assertNull( compile("a == a2 ? 'yes' : 'no'") );
+        assertNull( compile("b.value.split(' ').1") );
+        assertNull( compile("value(1.23)") );
+        assertNull( compile("'it\\'s'") );
+        assertNull( compile("a;b") );
+        
+        BindingEnv env = new BindingEnv();
+        env.put("x.y", "dotted");
+        assertEquals("DOTTED", compile("x.y.toUpperCase()").evaluate(env));
+        assertNull( compile("x.noSuchMethod()").evaluate(env) );
+        assertNull( compile("undefined.toString()").evaluate(env) );
+    }
+    
+    private CompiledExpression compile(String src) {
+        return CompiledExpression.compile(src, Pattern.engine.getUberspect(), Pattern.FUNCTIONS);
+    }
+}
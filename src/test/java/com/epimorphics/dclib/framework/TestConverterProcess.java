@@ -10,15 +10,27 @@
 package com.epimorphics.dclib.framework;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
 
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWriter;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 
+import com.epimorphics.dclib.sources.CSVChunk;
 import com.epimorphics.dclib.values.ValueNumber;
 import com.epimorphics.tasks.ProgressMessage;
 import com.epimorphics.tasks.ProgressMonitor;
@@ -61,6 +73,135 @@ public class TestConverterProcess {
         assertTrue( message.getMessage().contains("Value exceeds test threshold") );
     }
     
+    @Test
+    public void testParallelConversion() throws IOException {
+        StringBuilder csv = new StringBuilder("name,value\n");
+        for (int i = 0; i < 2500; i++) {
+            csv.append("n" + i + "," + (i % 30) + "\n");
+        }
+        String serial = convertToNTriples(csv.toString(), 1, false, new SimpleProgressMonitor());
+        assertEquals(serial, convertToNTriples(csv.toString(), 1, true, new SimpleProgressMonitor()));
+        SimpleProgressMonitor monitor = new SimpleProgressMonitor();
+        String parallel = convertToNTriples(csv.toString(), 4, false, monitor);
+        assertEquals(serial, parallel);
+        
+        int failures = 0;
+        for (ProgressMessage message : monitor.getMessages()) {
+            if (message.getMessage().contains("Value exceeds test threshold")) failures++;
+        }
+        assertEquals((2500 / 30) * 9, failures);
+    }
+    
+    @Test
+    public void testModelOutputIsSerial() throws IOException {
+        ConverterProcess process = setUp("test/test-ok.csv");
+        SimpleProgressMonitor monitor = new SimpleProgressMonitor();
+        process.setMessageReporter(monitor);
+        process.setThreads(4);
+        assertTrue( process.process() );
+        assertTrue( contains(process, "1", "a", "10") );
+        assertTrue( monitor.getMessages().stream().anyMatch(m -> m.getMessage().contains("converting on a single thread")) );
+    }
+    
+    @Test
+    @Timeout(60)
+    public void testParallelReadFailure() throws IOException {
+        StringBuilder csv = new StringBuilder("name,value\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append("n" + i + "," + (i % 10) + "\n");
+        }
+        InputStream is = new ByteArrayInputStream( csv.toString().getBytes(StandardCharsets.UTF_8) );
+        ConverterProcess process = new ConverterProcess(new DataContext(), is) {
+            int rows = 0;
+            
+            @Override
+            public BindingEnv nextRow() throws IOException {
+                if (++rows > 500) {
+                    throw new IllegalStateException("Bad row");
+                }
+                return super.nextRow();
+            }
+        };
+        process.setTemplate( new TestTemplate() );
+        SimpleProgressMonitor monitor = new SimpleProgressMonitor();
+        process.setMessageReporter(monitor);
+        process.setThreads(4);
+        process.setOutputStream( StreamRDFLib.sinkNull() );
+        assertFalse( process.process() );
+        boolean reported = false;
+        for (ProgressMessage message : monitor.getMessages()) {
+            if (message.getMessage().contains("Bad row")) reported = true;
+        }
+        assertTrue(reported);
+    }
+    
+    @Test
+    public void testChunkedConversion() throws IOException {
+        File file = File.createTempFile("chunked", ".csv");
+        file.deleteOnExit();
+        StringBuilder csv = new StringBuilder("name,value\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append( (i % 7 == 0) ? "\"n" + i + "\nsecond, line\"," : "n" + i + "," ).append(i % 20).append("\n");
+        }
+        Files.writeString(file.toPath(), csv.toString());
+        
+        List<CSVChunk> chunks = CSVChunk.split(file.getPath(), 4);
+        assertEquals(4, chunks.size());
+        
+        String serial = convertToNTriples(csv.toString(), 1, false, new SimpleProgressMonitor());
+        ChunkedConverter converter = new ChunkedConverter(new DataContext(), new TestTemplate(), file.getPath(), 4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamRDF stream = StreamRDFWriter.getWriterStream(out, Lang.NTRIPLES);
+        assertTrue( converter.convert(stream) );
+        stream.finish();
+        assertEquals(serial, out.toString(StandardCharsets.UTF_8).replaceAll("(?m)^.*/\\$row> .*\n", ""));
+    }
+    
+    @Test
+    public void testChunkedConversionFailure() throws IOException {
+        File file = File.createTempFile("chunked", ".csv");
+        file.deleteOnExit();
+        StringBuilder csv = new StringBuilder("name,value\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append("n" + i + "," + (i == 10 ? 99 : i % 20) + "\n");
+        }
+        Files.writeString(file.toPath(), csv.toString());
+        
+        ChunkedConverter converter = new ChunkedConverter(new DataContext(), new TestTemplate(), file.getPath(), 4);
+        converter.setAllowNullRows(false);
+        SimpleProgressMonitor monitor = new SimpleProgressMonitor();
+        converter.setMessageReporter(monitor);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamRDF stream = StreamRDFWriter.getWriterStream(out, Lang.NTRIPLES);
+        assertFalse( converter.convert(stream) );
+        stream.finish();
+        assertFalse( monitor.succeeded() );
+        // Chunks after the failed row are still output
+        assertTrue( out.toString(StandardCharsets.UTF_8).contains("\"n999\"") );
+    }
+    
+    /**
+     * Convert with the given number of threads, pipelined forces the pipeline to be used even with a single thread
+     */
+    private String convertToNTriples(String csv, int nThreads, boolean pipelined, SimpleProgressMonitor monitor) throws IOException {
+        InputStream is = new ByteArrayInputStream( csv.getBytes(StandardCharsets.UTF_8) );
+        ConverterProcess process = new ConverterProcess(new DataContext(), is);
+        process.setTemplate( new TestTemplate() );
+        process.setMessageReporter(monitor);
+        process.setThreads(nThreads);
+        if (pipelined) {
+            process.setPipelined(true);
+            process.setQueueDepth(2);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StreamRDF stream = StreamRDFWriter.getWriterStream(out, Lang.NTRIPLES);
+        process.setOutputStream(stream);
+        assertTrue( process.process() );
+        stream.finish();
+        // Drop the $row bindings, TestTemplate renders them by object identity
+        return out.toString(StandardCharsets.UTF_8).replaceAll("(?m)^.*/\\$row> .*\n", "");
+    }
+    
     private ConverterProcess setUp(String file) throws IOException {
         InputStream is = new FileInputStream(file);
         ConverterProcess process = new ConverterProcess(new DataContext(), is);
@@ -0,0 +1,103 @@
+/******************************************************************
+ * File:        TestDedupStreamRDF.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.lang.CollectorStreamTriples;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.epimorphics.util.EpiException;
+
+public class TestDedupStreamRDF {
+    static final Node P = NodeFactory.createURI("http://example.com/p");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testLRU() {
+        CollectorStreamTriples out = new CollectorStreamTriples();
+        DedupStreamRDF dedup = DedupStreamRDF.fromSpec(out, "lru:10");
+        dedup.start();
+        for (int i = 0; i < 100; i++) {
+            dedup.triple( triple(i % 5) );
+        }
+        dedup.finish();
+        assertEquals(5, out.getCollected().size());
+        assertEquals(95, dedup.getDropped());
+    }
+
+    @Test
+    public void testBloom() {
+        CollectorStreamTriples out = new CollectorStreamTriples();
+        DedupStreamRDF dedup = DedupStreamRDF.fromSpec(out, "bloom:10000:0.001");
+        dedup.start();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < 10000; i++) {
+                dedup.triple( triple(i) );
+            }
+        }
+        dedup.finish();
+        assertTrue( out.getCollected().size() > 9950 );
+        assertEquals( 20000, out.getCollected().size() + dedup.getDropped() );
+    }
+
+    @Test
+    public void testExact() throws Exception {
+        SpillingTripleSet seen = new SpillingTripleSet(dir.toFile(), 100);
+        CollectorStreamTriples out = new CollectorStreamTriples();
+        DedupStreamRDF dedup = new DedupStreamRDF(out, seen);
+        dedup.start();
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < 20000; i++) {
+                dedup.triple( triple(i) );
+            }
+        }
+        // Spilled runs have been merged
+        assertTrue( seen.getRunCount() > 0 && seen.getRunCount() < SpillingTripleSet.SHARDS * SpillingTripleSet.MAX_RUNS );
+        // Run filters are capped at one spill's worth of keys, however large the merged run
+        long cap = new DedupStreamRDF.Bloom(100 / SpillingTripleSet.SHARDS, SpillingTripleSet.RUN_FPP).nbits;
+        for (SpillingTripleSet.Shard shard : seen.shards) {
+            for (SpillingTripleSet.Run run : shard.runs) {
+                assertTrue( run.bloom.nbits <= cap );
+            }
+        }
+        dedup.finish();
+
+        Set<Triple> distinct = new HashSet<>( out.getCollected() );
+        assertEquals(20000, out.getCollected().size());
+        assertEquals(20000, distinct.size());
+        assertEquals(20000, dedup.getDropped());
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testBadSpec() {
+        assertThrows(EpiException.class, () -> DedupStreamRDF.fromSpec(new CollectorStreamTriples(), "cuckoo:10"));
+        assertThrows(EpiException.class, () -> DedupStreamRDF.fromSpec(new CollectorStreamTriples(), "lru:many"));
+    }
+
+    private static Triple triple(int i) {
+        return Triple.create( NodeFactory.createURI("http://example.com/s/" + i), P, NodeFactory.createLiteralString("value " + i) );
+    }
+}
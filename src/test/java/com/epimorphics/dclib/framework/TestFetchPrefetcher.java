@@ -0,0 +1,110 @@
+/******************************************************************
+ * File:        TestFetchPrefetcher.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.epimorphics.dclib.templates.TemplateFactory;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestFetchPrefetcher {
+
+    @TempDir
+    Path dir;
+
+    HttpServer server;
+    ExecutorService executor = Executors.newCachedThreadPool();
+    String base;
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maxActive = new AtomicInteger();
+    AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/item", exchange -> {
+            requests.incrementAndGet();
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                // finish early
+            }
+            String uri = base + exchange.getRequestURI().getPath();
+            byte[] bytes = ("<" + uri + "> <http://example.com/p> \"fetched\" .\n").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/turtle");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+            active.decrementAndGet();
+            exchange.close();
+        });
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        Model direct = convert(0);
+        assertEquals(8, requests.get());
+        assertEquals(1, maxActive.get());
+
+        requests.set(0);
+        Model prefetched = convert(8);
+        assertEquals(8, requests.get());
+        assertTrue( maxActive.get() > 1 && maxActive.get() <= FetchPrefetcher.DEFAULT_PER_HOST );
+        assertTrue( direct.isIsomorphicWith(prefetched) );
+        assertEquals(16, prefetched.size());
+    }
+
+    private Model convert(int window) throws Exception {
+        File template = dir.resolve("fetch.yaml").toFile();
+        Files.writeString(template.toPath(), "name : fetch\n\"@id\" : <{id.fetch()}>\n<rdfs:label> : \"{label}\"\n");
+        StringBuilder csv = new StringBuilder("id,label\n");
+        for (int i = 0; i < 8; i++) {
+            csv.append(base + "/item/" + i + ",Item " + i + "\n");
+        }
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        ConverterProcess process = new ConverterProcess(dc, new ByteArrayInputStream( csv.toString().getBytes(StandardCharsets.UTF_8) ));
+        process.setTemplate( TemplateFactory.templateFrom(template.getPath(), dc) );
+        process.setPrefetch(window);
+        Model result = ModelFactory.createDefaultModel();
+        process.setOutputStream( StreamRDFLib.graph(result.getGraph()) );
+        assertTrue( process.process() );
+        return result;
+    }
+}
@@ -24,6 +24,7 @@ import org.junit.jupiter.api.Test;
 import com.epimorphics.dclib.values.Row;
 import com.epimorphics.dclib.values.Value;
 import com.epimorphics.dclib.values.ValueArray;
+import com.epimorphics.dclib.values.ValueBase;
 import com.epimorphics.dclib.values.ValueFactory;
 import com.epimorphics.dclib.values.ValueNode;
 
@@ -83,6 +84,9 @@ public class TestFunctions {
         assertEquals("12", eval("UK012", "{x.regex('UK0?([0-9]*)')}").toString() );
         assertTrue( (Boolean)eval("UK012", "{x.matches('UK0?([0-9]*)')}") );
         assertFalse( (Boolean)eval("UK0a", "{x.matches('UK0?([0-9]*)')}") );
+        assertEquals("UK-12-3", eval("UK 12  3", "{x.replaceAll(' +', '-')}").toString() );
+        assertEquals("uk-12-3", eval("UK (12) 3", "{x.toCleanSegment()}").toString() );
+        assertSame( ValueBase.compileRegex("UK0?([0-9]*)"), ValueBase.compileRegex("UK0?([0-9]*)") );
         assertEquals("12", eval("UK12", "{x.substring(2)}").toString() );
         assertEquals("baz", eval("http://foo/bar/baz", "{x.lastSegment()}").toString() );
         assertEquals("baz", eval("http://foo/bar#baz", "{x.lastSegment()}").toString() );
@@ -0,0 +1,117 @@
+/******************************************************************
+ * File:        TestHttpFetchCache.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.jena.rdf.model.Model;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class TestHttpFetchCache {
+    static final String ETAG = "\"v1\"";
+
+    @TempDir
+    Path dir;
+
+    HttpServer server;
+    String base;
+    AtomicInteger requests = new AtomicInteger();
+    AtomicInteger notModified = new AtomicInteger();
+    volatile String body = "<http://example.com/a> <http://example.com/p> \"one\" .\n";
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/data", exchange -> {
+            requests.incrementAndGet();
+            if (ETAG.equals( exchange.getRequestHeaders().getFirst("If-None-Match") )) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/turtle");
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            }
+            exchange.close();
+        });
+        server.createContext("/rdfxml", exchange -> {
+            byte[] bytes = ("<rdf:RDF xmlns:rdf='http://www.w3.org/1999/02/22-rdf-syntax-ns#' xmlns:ex='http://example.com/'>"
+                    + "<rdf:Description rdf:about='http://example.com/a'><ex:p>one</ex:p></rdf:Description></rdf:RDF>").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/rdf+xml;charset=UTF-8");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+            exchange.close();
+        });
+        server.start();
+        base = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRevalidation() throws Exception {
+        HttpFetchCache cache = new HttpFetchCache( dir.toFile() );
+        Model model = cache.fetch(base + "/data");
+        assertEquals(1, model.size());
+        assertEquals(1, requests.get());
+
+        // Validated by this instance so no further requests
+        assertEquals(1, cache.fetch(base + "/data").size());
+        assertEquals(1, requests.get());
+
+        // A new cache, as in a later run, revalidates
+        body = "";
+        HttpFetchCache later = new HttpFetchCache( dir.toFile() );
+        assertTrue( later.fetch(base + "/data").contains(null, null, "one") );
+        assertEquals(2, requests.get());
+        assertEquals(1, notModified.get());
+
+        // Offline only sees stored data
+        server.stop(0);
+        HttpFetchCache offline = new HttpFetchCache( dir.toFile() );
+        offline.setOffline(true);
+        assertEquals(1, offline.fetch(base + "/data").size());
+        assertNull( offline.fetch(base + "/other") );
+
+        // Stored copy is used if the server can't be reached
+        assertEquals(1, new HttpFetchCache( dir.toFile() ).fetch(base + "/data").size());
+
+        offline.clear();
+        assertNull( offline.fetch(base + "/data") );
+    }
+
+    @Test
+    public void testContentTypeParameters() throws Exception {
+        Model model = new HttpFetchCache( dir.toFile() ).fetch(base + "/rdfxml");
+        assertEquals(1, model.size());
+        assertTrue( model.contains(null, null, "one") );
+    }
+}
@@ -0,0 +1,71 @@
+/******************************************************************
+ * File:        TestCSVTokenizer.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.sources;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class TestCSVTokenizer {
+
+    @Test
+    public void testTokenizing() throws IOException {
+        CSVTokenizer t = new CSVTokenizer(new StringReader(
+                "\uFEFFa,b ,c\r\n" +
+                "1,\"quoted, with comma\",  \"lead\"\n" +
+                "\"multi\r\nline\",\"say \"\"hi\"\"\",\"back \\\" slash\"\n" +
+                "\n" +
+                "x,,z"));
+        assertArrayEquals(new String[]{"a", "b ", "c"}, t.next().toArray());
+        assertArrayEquals(new String[]{"1", "quoted, with comma", "lead"}, t.next().toArray());
+        assertArrayEquals(new String[]{"multi\nline", "say \"hi\"", "back \" slash"}, t.next().toArray());
+        assertArrayEquals(new String[]{""}, t.next().toArray());
+        CSVRecord last = t.next();
+        assertArrayEquals(new String[]{"x", "", "z"}, last.toArray());
+        assertNull(t.next());
+
+        assertEquals("b", new CSVTokenizer(new StringReader(" b ,c")).next().getTrimmed(0));
+
+        CSVTokenizer bad = new CSVTokenizer(new StringReader("a,\"unterminated\n"));
+        assertThrows(IOException.class, () -> bad.next());
+    }
+
+    @Test
+    public void testProjection() throws IOException {
+        CSVTokenizer t = new CSVTokenizer(new StringReader(
+                "a,\"b,\nb\",c,d\"e\n" +
+                "1,  \"x,y\",3,\"4\""));
+        t.setProjection(new boolean[]{true, false, true, false});
+        assertArrayEquals(new String[]{"a", "", "c", ""}, t.next().toArray());
+        assertArrayEquals(new String[]{"1", "", "3", ""}, t.next().toArray());
+        assertNull(t.next());
+    }
+
+    @Test
+    public void testPeekAndPreamble() throws Exception {
+        String csv = "#,name,value\n#,,meta\nname,value\nfoo,1\n";
+        CSVInput in = new CSVInput(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(true, in.hasPreamble());
+        assertArrayEquals(new String[]{"#", "", "meta"}, in.getPeekRow());
+        assertArrayEquals(new String[]{"#", "", "meta"}, in.getPeekRow());
+        in.advancePeek();
+        assertArrayEquals(new String[]{"name", "value"}, in.getPeekRow());
+        in.advancePeek();
+        assertArrayEquals(new String[]{"foo", "1"}, in.nextRowValues());
+        assertNull(in.nextRecord());
+    }
+}
@@ -0,0 +1,67 @@
+/******************************************************************
+ * File:        TestLazyMapSource.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.sources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.epimorphics.dclib.framework.ConverterProcess;
+import com.epimorphics.dclib.framework.ConverterService;
+import com.epimorphics.dclib.framework.DataContext;
+import com.epimorphics.util.EpiException;
+
+public class TestLazyMapSource {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testLazyLoading() throws Exception {
+        File data = dir.resolve("types.csv").toFile();
+        Files.writeString(data.toPath(), "label,id\nCentral,http://example.com/central\n", StandardCharsets.UTF_8);
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        ConverterProcess proc = new ConverterProcess(dc, new ByteArrayInputStream( "a\n".getBytes(StandardCharsets.UTF_8) ));
+
+        JsonObject spec = spec(data.getPath(), "\"lazy\" : true");
+        assertTrue( LazyMapSource.isLazy(spec) );
+        LazyMapSource source = new LazyMapSource(spec, proc);
+        assertEquals("types", source.getName());
+        assertFalse( source.isLoaded() );
+        assertEquals("http://example.com/central", source.lookup("central").getURI());
+        assertTrue( source.isLoaded() );
+
+        LazyMapSource prefetched = new LazyMapSource(spec(data.getPath(), "\"lazy\" : true, \"prefetch\" : true"), proc);
+        prefetched.awaitPrefetch();
+        assertTrue( prefetched.isLoaded() );
+
+        // Failures only show up on use
+        LazyMapSource missing = new LazyMapSource(spec(dir.resolve("missing.csv").toString(), "\"lazy\" : true"), proc);
+        assertFalse( missing.isLoaded() );
+        assertThrows(EpiException.class, () -> missing.lookup("central"));
+        assertThrows(EpiException.class, () -> missing.lookup("central"));
+    }
+
+    private JsonObject spec(String file, String options) {
+        return JSON.parse("{ \"sourceType\" : \"CSV\", \"name\" : \"types\", \"source\" : \""
+                + file.replace("\\", "\\\\") + "\", \"key\" : \"label\", \"value\" : \"id\", " + options + " }");
+    }
+}
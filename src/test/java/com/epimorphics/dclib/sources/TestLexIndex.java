@@ -14,7 +14,10 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Collection;
+import java.util.Random;
+import java.util.regex.Pattern;
 
+import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -58,5 +61,73 @@ public class TestLexIndex {
         assertTrue(results.contains("fourth"));
         assertEquals(2, results.size());
     }
-    
+
+    @Test
+    public void testLookupFuzzy() {
+        table.put("Bathing Water", "bw");
+        table.put("Bathing Waters", "bws");
+        table.put("River Basin", "rb");
+        assertEquals("bw", table.lookupFuzzy("bathing-water", 2));
+        assertEquals("bw", table.lookupFuzzy("Bathng Water", 1));
+        assertEquals("rb", table.lookupFuzzy("Rivr Bason", 2));
+        assertNull( table.lookupFuzzy("Rivr Bason", 1) );
+        assertNull( table.lookupFuzzy("Rivr Basin", 0) );
+        assertEquals("third", table.lookupFuzzy("nother keys", 2));
+    }
+
+    @Test
+    public void testPutAfterLookup() {
+        assertEquals("third", table.lookup("another key"));
+        table.put("Yet another key", "fourth");
+        assertEquals("fourth", table.lookup("yet another key"));
+        assertEquals("third", table.lookup("another key"));
+        assertEquals(4, table.size());
+    }
+
+    @Test
+    public void testNormalizeMatchesTokenizer() {
+        String alphabet = "aAbBeEhHiInNtTzZ09 _-.,&'\"()\t\n\u00a0\u007f\u00e9\u00c9\u00df\u0130\u03a3\u212a\ud83d\ude00";
+        String[] words = { "the", "The", "THE", "and", "AND", "first", "Key", "XMLHttp", "ID2Code", "theEnd", "a&b" };
+        Random random = new Random(42);
+        StringBuilder buffer = new StringBuilder();
+        for (int n = 0; n < 20000; n++) {
+            StringBuilder s = new StringBuilder();
+            int len = random.nextInt(16);
+            for (int i = 0; i < len; i++) {
+                if (random.nextInt(4) == 0) {
+                    s.append( words[random.nextInt(words.length)] );
+                } else {
+                    s.append( alphabet.charAt(random.nextInt(alphabet.length())) );
+                }
+            }
+            String orig = s.toString();
+            String expected = tokenizingNormalize(orig);
+            assertEquals(expected, LexIndex.normalize(orig), "Normalizing: " + orig);
+            assertEquals(expected, LexIndex.normalize(orig, buffer).toString(), "Normalizing: " + orig);
+        }
+    }
+
+    /**
+     * Original tokenizer based normalization, the reference for the single pass version
+     */
+    private static String tokenizingNormalize(String orig) {
+        StringBuilder norm = new StringBuilder();
+        boolean started = false;
+        for (String token : StringUtils.splitByCharacterTypeCamelCase(orig)) {
+            token = token.trim().toLowerCase();
+            if ( ! token.isEmpty() ) {
+                if (! STOP.matcher(token).matches()) {
+                    if (started) {
+                        norm.append(" ");
+                    } else {
+                        started = true;
+                    }
+                    norm.append(token);
+                }
+            }
+        }
+        return norm.toString();
+    }
+    private static final Pattern STOP = Pattern.compile("[\\p{Punct}]*|the|and");
+
 }
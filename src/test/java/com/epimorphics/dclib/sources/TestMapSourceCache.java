@@ -0,0 +1,135 @@
+/******************************************************************
+ * File:        TestMapSourceCache.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.sources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.epimorphics.dclib.framework.ConverterProcess;
+import com.epimorphics.dclib.framework.ConverterService;
+import com.epimorphics.dclib.framework.DataContext;
+import com.epimorphics.dclib.framework.MapSource;
+import com.epimorphics.dclib.templates.TemplateFactory;
+
+public class TestMapSourceCache {
+
+    @TempDir
+    Path dir;
+
+    // Processes which still hold sources, processing them releases the sources
+    List<ConverterProcess> unfinished = new ArrayList<>();
+
+    @BeforeEach
+    public void enableCache() {
+        MapSourceCache.get().setEnabled(true);
+    }
+
+    @AfterEach
+    public void releaseSources() {
+        for (ConverterProcess process : unfinished) {
+            process.process();
+        }
+        unfinished.clear();
+        MapSourceCache.get().clear();
+        MapSourceCache.get().setEnabled(false);
+        MapSourceCache.get().setCapacity(MapSourceCache.DEFAULT_CAPACITY);
+    }
+
+    @Test
+    public void testSharing() throws Exception {
+        File data = dir.resolve("types.csv").toFile();
+        Files.writeString(data.toPath(), "label,id\nCentral,http://example.com/central\n", StandardCharsets.UTF_8);
+        JsonObject spec = JSON.parse("{ \"sourceType\" : \"CSV\", \"name\" : \"types\", \"source\" : \"" 
+                + data.getPath().replace("\\", "\\\\") + "\", \"key\" : \"label\", \"value\" : \"id\" }");
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        MapSourceCache cache = MapSourceCache.get();
+
+        ConverterProcess p1 = newProcess(dc);
+        ConverterProcess p2 = newProcess(dc);
+        MapSource s1 = MapSourceFactory.sourceFrom(spec, p1);
+        MapSource s2 = MapSourceFactory.sourceFrom(spec, p2);
+        assertSame(s1, s2);
+        assertEquals("http://example.com/central", s1.lookup("central").getURI());
+
+        // Held sources survive a clear, released ones don't
+        cache.clear();
+        assertSame(s1, MapSourceFactory.sourceFrom(spec, p1));
+        assertTrue( finish(p1) );
+        assertTrue( finish(p2) );
+        cache.clear();
+        ConverterProcess p3 = newProcess(dc);
+        MapSource s3 = MapSourceFactory.sourceFrom(spec, p3);
+        assertNotSame(s1, s3);
+
+        // Changed files are reloaded
+        Files.writeString(data.toPath(), "label,id\nCentral,http://example.com/central2\n", StandardCharsets.UTF_8);
+        data.setLastModified( data.lastModified() + 2000 );
+        MapSource s4 = MapSourceFactory.sourceFrom(spec, p3);
+        assertNotSame(s3, s4);
+        assertEquals("http://example.com/central2", s4.lookup("central").getURI());
+        assertTrue( finish(p3) );
+    }
+
+    @Test
+    public void testCapacity() throws Exception {
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        MapSourceCache.get().setCapacity(1);
+        JsonObject spec1 = sourceSpec("one");
+        JsonObject spec2 = sourceSpec("two");
+
+        ConverterProcess p1 = newProcess(dc);
+        MapSource s1 = MapSourceFactory.sourceFrom(spec1, p1);
+        MapSource s2 = MapSourceFactory.sourceFrom(spec2, p1);
+        assertTrue( finish(p1) );
+
+        // Only the most recently used unreferenced source is retained
+        ConverterProcess p2 = newProcess(dc);
+        assertSame(s2, MapSourceFactory.sourceFrom(spec2, p2));
+        assertNotSame(s1, MapSourceFactory.sourceFrom(spec1, p2));
+        assertTrue( finish(p2) );
+    }
+
+    private JsonObject sourceSpec(String name) throws IOException {
+        File data = dir.resolve(name + ".csv").toFile();
+        Files.writeString(data.toPath(), "label,id\nCentral,http://example.com/" + name + "\n", StandardCharsets.UTF_8);
+        return JSON.parse("{ \"sourceType\" : \"CSV\", \"name\" : \"" + name + "\", \"source\" : \""
+                + data.getPath().replace("\\", "\\\\") + "\", \"key\" : \"label\", \"value\" : \"id\" }");
+    }
+
+    private boolean finish(ConverterProcess process) {
+        unfinished.remove(process);
+        return process.process();
+    }
+
+    private ConverterProcess newProcess(DataContext dc) throws IOException {
+        ConverterProcess process = new ConverterProcess(dc, new ByteArrayInputStream( "notation,label\n1,Entry 1\n".getBytes(StandardCharsets.UTF_8) ));
+        process.getEnv().put("$base", "http://example.com/");
+        process.setTemplate( TemplateFactory.templateFrom("test/simple-skos-template.json", dc) );
+        unfinished.add(process);
+        return process;
+    }
+}
@@ -0,0 +1,80 @@
+/******************************************************************
+ * File:        TestMapSourceSnapshot.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.sources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.epimorphics.dclib.framework.ConverterProcess;
+import com.epimorphics.dclib.framework.ConverterService;
+import com.epimorphics.dclib.framework.DataContext;
+
+public class TestMapSourceSnapshot {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testRDFSnapshot() throws Exception {
+        File data = dir.resolve("map-rdf.ttl").toFile();
+        Files.copy(new File("test/mapping/map-rdf.ttl").toPath(), data.toPath());
+        JsonObject spec = JSON.parse("{ \"sourceType\" : \"RDF\", \"name\" : \"test-map-rdf\", \"source\" : \""
+                + data.getPath().replace("\\", "\\\\") + "\", \"key\" : \"skos:notation\", \"enrich\" : [\"rdfs:label\"], \"snapshot\" : true }");
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        ConverterProcess proc = new ConverterProcess(dc, new ByteArrayInputStream( "a\n".getBytes(StandardCharsets.UTF_8) ));
+
+        RDFMapSource loaded = (RDFMapSource) MapSourceFactory.load(spec, proc);
+        assertNotNull(loaded.rdf);
+        File[] snapshots = dir.toFile().listFiles((d, name) -> name.endsWith(MapSourceSnapshot.EXTENSION));
+        assertEquals(1, snapshots.length);
+
+        RDFMapSource restored = (RDFMapSource) MapSourceFactory.load(spec, proc);
+        assertNull(restored.rdf);
+        assertEquals("http://example.com/map/root2", restored.lookup("key2").getURI());
+        assertEquals(loaded.lookupAll("key1"), restored.lookupAll("key1"));
+        assertEquals(enrichment(loaded, "key3"), enrichment(restored, "key3"));
+        assertEquals(1, enrichment(restored, "key3").size());
+
+        // A changed source is reloaded
+        Files.writeString(data.toPath(), Files.readString(data.toPath()) + "<http://example.com/map/root4> <http://www.w3.org/2004/02/skos/core#notation> \"key4\" .\n");
+        assertTrue( data.setLastModified(data.lastModified() + 2000) );
+        RDFMapSource reloaded = (RDFMapSource) MapSourceFactory.load(spec, proc);
+        assertNotNull(reloaded.rdf);
+        assertEquals("http://example.com/map/root4", reloaded.lookup("key4").getURI());
+        assertEquals("http://example.com/map/root4", ((RDFMapSource) MapSourceFactory.load(spec, proc)).lookup("key4").getURI());
+    }
+
+    private List<Triple> enrichment(RDFMapSource source, String key) {
+        List<Triple> triples = new ArrayList<>();
+        source.enrich(new StreamRDFBase() {
+            @Override
+            public void triple(Triple triple) {
+                triples.add(triple);
+            }
+        }, source.lookup(key));
+        return triples;
+    }
+}
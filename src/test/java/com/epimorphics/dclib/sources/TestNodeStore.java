@@ -0,0 +1,89 @@
+/******************************************************************
+ * File:        TestNodeStore.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.sources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.junit.jupiter.api.Test;
+
+public class TestNodeStore {
+
+    @Test
+    public void testRoundTrip() {
+        NodeStore store = new NodeStore();
+        List<Node> nodes = new ArrayList<>();
+        nodes.add( NodeFactory.createURI("http://example.com/map/root1") );
+        nodes.add( NodeFactory.createBlankNode("b0") );
+        nodes.add( NodeFactory.createLiteralString("plain") );
+        nodes.add( NodeFactory.createLiteralLang("café", "fr") );
+        nodes.add( NodeFactory.createLiteralDT("42", XSDDatatype.XSDinteger) );
+        nodes.add( NodeFactory.createLiteralDT("42", XSDDatatype.XSDstring) );
+        nodes.add( NodeFactory.createLiteralString("") );
+        nodes.add( NodeFactory.createLiteralLang("long tag", "en-x-" + "abcdefgh-".repeat(40) + "end") );
+        int[] ids = new int[nodes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = store.add( nodes.get(i) );
+        }
+        assertEquals(nodes.size(), store.size());
+        assertNotEquals(ids[4], ids[5]);
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(nodes.get(i), store.get(ids[i]));
+            assertEquals(ids[i], store.add( nodes.get(i) ));
+        }
+        assertEquals(nodes, store.listNodes());
+    }
+
+    @Test
+    public void testGrowth() {
+        NodeStore store = new NodeStore();
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            big.append("long value ");
+        }
+        Node bigNode = NodeFactory.createLiteralString( big.toString() );
+        int bigId = store.add(bigNode);
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(i + 1, store.add( NodeFactory.createURI("http://example.com/item/" + i) ));
+        }
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(i + 1, store.add( NodeFactory.createURI("http://example.com/item/" + i) ));
+            assertEquals("http://example.com/item/" + i, store.get(i + 1).getURI());
+        }
+        assertEquals(bigNode, store.get(bigId));
+    }
+
+    @Test
+    public void testSegmentSizing() {
+        NodeStore store = new NodeStore();
+        store.add( NodeFactory.createURI("http://example.com/small") );
+        assertEquals(NodeStore.MIN_SEGMENT_SIZE, store.allocatedBytes());
+
+        NodeStore sized = new NodeStore();
+        sized.setExpectedSize(1000000);
+        sized.add( NodeFactory.createURI("http://example.com/small") );
+        assertEquals(1000000, sized.allocatedBytes());
+    }
+
+    @Test
+    public void testOffHeapIndex() {
+        LexIndex<Node> index = new LexIndex<>( new NodeStore() );
+        index.put("Key One", NodeFactory.createURI("http://example.com/1"));
+        index.put("key two", NodeFactory.createURI("http://example.com/2"));
+        index.put("keyOne", NodeFactory.createURI("http://example.com/1b"));
+        assertEquals("http://example.com/2", index.lookup("KeyTwo").getURI());
+        assertEquals(2, index.lookupAll("key one").size());
+    }
+}
@@ -0,0 +1,69 @@
+/******************************************************************
+ * File:        TestRDFSparqlMapSource.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.dclib.sources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.jena.atlas.json.JSON;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.graph.NodeFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.epimorphics.dclib.framework.ConverterProcess;
+import com.epimorphics.dclib.framework.ConverterService;
+import com.epimorphics.dclib.framework.DataContext;
+
+public class TestRDFSparqlMapSource {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testLookups() throws Exception {
+        File data = dir.resolve("concepts.ttl").toFile();
+        StringBuilder ttl = new StringBuilder("@prefix skos: <http://www.w3.org/2004/02/skos/core#> .\n@prefix : <http://example.com/map/> .\n");
+        ttl.append(":a skos:notation \"k1\" ; skos:prefLabel \"A\" .\n");
+        ttl.append(":b skos:notation \"k1\" .\n");
+        for (int i = 0; i < 1000; i++) {
+            ttl.append(":c" + i + " skos:notation \"n" + i + "\" ; skos:prefLabel \"C" + i + "\" .\n");
+        }
+        Files.writeString(data.toPath(), ttl.toString());
+        JsonObject spec = JSON.parse("{ \"sourceType\" : \"RDFSparql\", \"name\" : \"concepts\", \"source\" : \""
+                + data.getPath().replace("\\", "\\\\") + "\", "
+                + "\"query\" : \"SELECT ?key ?value ?label WHERE { ?value skos:notation ?key OPTIONAL { ?value skos:prefLabel ?label } } ORDER BY ?value\" }");
+        DataContext dc = new ConverterService(ConverterService.DEFAULT_PREFIXES_RESOURCE).getDataContext();
+        ConverterProcess proc = new ConverterProcess(dc, new ByteArrayInputStream( "a\n".getBytes(StandardCharsets.UTF_8) ));
+        RDFSparqlMapSource source = new RDFSparqlMapSource(spec, proc);
+
+        assertEquals(1001, source.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("http://example.com/map/c" + i, source.lookup("n" + i).getURI());
+            assertEquals("C" + i, source.lookup("n" + i, "label").getLiteralLexicalForm());
+        }
+        assertNull( source.lookup("missing") );
+        assertNull( source.lookup("n1", "missing") );
+
+        // Later results replace earlier ones, but unbound variables don't
+        assertEquals("http://example.com/map/b", source.lookup("k1").getURI());
+        assertEquals("A", source.lookup("k1", "label").getLiteralLexicalForm());
+        assertEquals(List.of(NodeFactory.createURI("http://example.com/map/a"), NodeFactory.createURI("http://example.com/map/b")),
+                List.copyOf( source.lookupAll("k1") ));
+        assertTrue( source.lookupAll("missing").isEmpty() );
+    }
+}
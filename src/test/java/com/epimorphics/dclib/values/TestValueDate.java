@@ -133,6 +133,19 @@ public class TestValueDate {
         doTestCoercion("02 03 2014 15-34-03 Z", "dd MM yyyy HH-mm-ss Z", XSD.dateTime.getURI(), "2014-03-02T15:34:03Z");
     }
     
+    @Test
+    public void testFormatAlternatives() {
+        doTestCoercion("03/02/2014", "dd/MM/yyyy|MM/dd/yyyy", XSD.date.getURI(), "2014-02-03");
+        doTestCoercion("03/02/2014", "MM/dd/yyyy|dd/MM/yyyy", XSD.date.getURI(), "2014-03-02");
+        doTestCoercion("03/13/2014", "dd/MM/yyyy|MM/dd/yyyy", XSD.date.getURI(), "2014-03-13");
+        doTestCoercion("2014-03-02 15:34:03.5", "yyyy-MM-dd|yyyy-MM-dd HH:mm:ss.S", XSD.dateTime.getURI(), "2014-03-02T15:34:03.500");
+        doTestCoercion("2014", "[bad|yyyy", XSD.gYear.getURI(), "2014");
+
+        assertTrue( ValueDate.parse("13/13/2014", "dd/MM/yyyy|MM/dd/yyyy", XSD.date.getURI()) instanceof ValueNull );
+        assertTrue( ValueDate.parse("2014-03-02x", "yyyy-MM-dd", XSD.date.getURI()) instanceof ValueNull );
+        assertSame( DateFormatParser.forFormat("dd/MM/yyyy|MM/dd/yyyy"), DateFormatParser.forFormat("dd/MM/yyyy|MM/dd/yyyy") );
+    }
+
     private void doTestCoercion(String src, String typeURI, String expected) {
         Value v = ValueFactory.asValue(src);
         assertTrue(v instanceof ValueString || v instanceof ValueNumber);
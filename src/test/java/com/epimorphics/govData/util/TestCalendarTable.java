@@ -0,0 +1,102 @@
+/******************************************************************
+ * File:        TestCalendarTable.java
+ * Created on:  17 Oct 2026
+ *
+ * (c) Copyright 2026, Epimorphics Limited
+ *
+ *****************************************************************/
+
+package com.epimorphics.govData.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.TimeZone;
+import java.util.function.Consumer;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class TestCalendarTable {
+    TimeZone zone = TimeZone.getDefault();
+    CalendarTable table;
+
+    @AfterEach
+    public void restore() {
+        TimeZone.setDefault(zone);
+        CalendarTable.setDefault( new CalendarTable(CalendarTable.DEFAULT_FIRST_YEAR, CalendarTable.DEFAULT_LAST_YEAR) );
+    }
+
+    @Test
+    public void testLookups() {
+        table = new CalendarTable(1700, 2100);
+        assertTrue( table.isBritishDay(2020, 12, 31) );
+        assertEquals( 53, table.weekOfYear(2021, 1, 1) );
+        assertEquals( 2020, table.weekOfYearYear(2021, 1, 1) );
+        assertEquals( 5, table.dayOfWeek(2021, 1, 1) );
+        assertEquals( 366, table.dayOfYear(2020, 12, 31) );
+        assertEquals( 20191230, table.weekStart(2020, 1) );
+        assertTrue( table.hasDay(1750, 2, 28) );
+        assertFalse( table.isBritishDay(1750, 2, 28) );
+        assertFalse( table.hasDay(2021, 2, 29) );
+        assertFalse( table.hasDay(2101, 1, 1) );
+    }
+
+    @Test
+    public void testAgreesWithCalendar() {
+        TimeZone.setDefault( TimeZone.getTimeZone("UTC") );
+        table = new CalendarTable(1700, 2100);
+        checkRange(1752, 1753);
+        checkRange(2000, 2000);
+        checkRange(2100, 2100);
+
+        // Clock changes, days with a change fall back to calendar arithmetic
+        TimeZone.setDefault( TimeZone.getTimeZone("Europe/London") );
+        table = new CalendarTable(1700, 2100);
+        assertFalse( table.isBritishDay(2014, 3, 30) );
+        checkRange(2014, 2014);
+        check( m -> new CalendarInstant(m, 2014, 3, 30, 1, 30, 0, true) );
+        check( m -> new CalendarInstant(m, 2014, 10, 26, 1, 30, 0, false) );
+    }
+
+    private void checkRange(int firstYear, int lastYear) {
+        for (int year = firstYear; year <= lastYear; year++) {
+            int y = year;
+            check( m -> new CalendarYear(m, y, false, false) );
+            for (int woy = 1; woy <= 53; woy++) {
+                int w = woy;
+                check( m -> new CalendarWeek(m, y, w, false, false) );
+            }
+            for (int moy = 1; moy <= 12; moy++) {
+                for (int dom = 1; dom <= CalendarTable.daysInMonth(year, moy); dom++) {
+                    if (year == 1752 && moy == 9 && dom > 2 && dom < 14) continue;   // Not in the British calendar
+                    int mo = moy, d = dom;
+                    check( m -> new CalendarDay(m, y, mo, d, true) );
+                    check( m -> new CalendarInstant(m, y, mo, d, 12, 30, 15, d == 1) );
+                }
+            }
+        }
+    }
+
+    private void check(Consumer<Model> builder) {
+        Model expected = build(null, builder);
+        Model actual = build(table, builder);
+        assertTrue( expected.isIsomorphicWith(actual) );
+    }
+
+    private Model build(CalendarTable table, Consumer<Model> builder) {
+        CalendarTable.setDefault(table);
+        Model model = ModelFactory.createDefaultModel();
+        try {
+            builder.accept(model);
+        } catch (IllegalArgumentException e) {
+            // Not a week in that year, must fail either way
+            model.createResource().addProperty(RDFS.label, "invalid");
+        }
+        return model;
+    }
+}